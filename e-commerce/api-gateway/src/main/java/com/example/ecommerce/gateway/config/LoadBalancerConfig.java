@@ -0,0 +1,10 @@
+package com.example.ecommerce.gateway.config;
+
+import com.example.ecommerce.gateway.loadbalancer.CartAffinityLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@LoadBalancerClient(name = "cart-service", configuration = CartAffinityLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
@@ -0,0 +1,35 @@
+package com.example.ecommerce.gateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load-balancer beans for cart-service. Deliberately not a {@code @Configuration}: it is only
+ * registered in cart-service's own load-balancer context through {@code @LoadBalancerClient},
+ * so other routes keep the default round-robin balancer.
+ */
+public class CartAffinityLoadBalancerConfiguration {
+    
+    @Bean
+    public InFlightRequestTracker inFlightRequestTracker() {
+        return new InFlightRequestTracker();
+    }
+    
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> consistentHashLoadBalancer(
+            Environment environment,
+            ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+            InFlightRequestTracker inFlightRequestTracker,
+            @Value("${gateway.cart-affinity.load-factor:1.25}") double loadFactor,
+            @Value("${gateway.cart-affinity.virtual-nodes:160}") int virtualNodes) {
+        
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new ConsistentHashLoadBalancer(serviceId, supplierProvider, inFlightRequestTracker, loadFactor, virtualNodes);
+    }
+}
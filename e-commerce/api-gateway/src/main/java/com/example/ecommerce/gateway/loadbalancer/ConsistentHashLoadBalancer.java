@@ -0,0 +1,215 @@
+package com.example.ecommerce.gateway.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes each cart owner to the same service instance, so per-instance cart caches stay hot.
+ *
+ * Instances are placed on a hash ring with a number of virtual nodes each; an instance
+ * advertises its ring node id and virtual node count in its Eureka metadata. A request is
+ * hashed on its cart owner (the {@code X-User-Email} header, or the guest token for anonymous
+ * carts) and goes to the first instance clockwise from that point. Adding or removing an
+ * instance only moves the keys adjacent to its virtual nodes.
+ *
+ * To keep one hot key range from overloading its owner, the ring is walked past any instance
+ * whose in-flight count is at or above {@code loadFactor} times the average (consistent
+ * hashing with bounded loads). Requests without an owner are spread round-robin.
+ */
+public class ConsistentHashLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ConsistentHashLoadBalancer.class);
+    
+    static final String USER_HEADER = "X-User-Email";
+    static final String GUEST_HEADER = "X-Guest-Token";
+    static final String RING_NODE_METADATA = "cart-ring-node";
+    static final String RING_VNODES_METADATA = "cart-ring-vnodes";
+    
+    private final String serviceId;
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final InFlightRequestTracker inFlightRequestTracker;
+    private final double loadFactor;
+    private final int defaultVirtualNodes;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    
+    private volatile HashRing ring = new HashRing(Collections.emptyList(), 0);
+    
+    public ConsistentHashLoadBalancer(String serviceId, ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                                      InFlightRequestTracker inFlightRequestTracker, double loadFactor,
+                                      int defaultVirtualNodes) {
+        this.serviceId = serviceId;
+        this.supplierProvider = supplierProvider;
+        this.inFlightRequestTracker = inFlightRequestTracker;
+        this.loadFactor = loadFactor;
+        this.defaultVirtualNodes = defaultVirtualNodes;
+    }
+    
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        String owner = cartOwner(request);
+        
+        return supplier.get(request).next().map(instances -> choose(instances, owner));
+    }
+    
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances, String owner) {
+        if (instances.isEmpty()) {
+            logger.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        
+        if (owner == null) {
+            int position = Math.abs(roundRobin.getAndIncrement() % instances.size());
+            return new DefaultResponse(instances.get(position));
+        }
+        
+        HashRing current = ringFor(instances);
+        long capacity = (long) Math.ceil(loadFactor * (inFlightRequestTracker.total(instances) + 1) / instances.size());
+        ServiceInstance chosen = current.locate(hash(owner), capacity);
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Routing cart owner to instance: {}", InFlightRequestTracker.key(chosen));
+        }
+        return new DefaultResponse(chosen);
+    }
+    
+    private HashRing ringFor(List<ServiceInstance> instances) {
+        HashRing current = ring;
+        if (!current.matches(instances)) {
+            // Membership changed (scale-out, restart, eviction); the rebuilt ring only moves keys next to the changed nodes
+            current = new HashRing(instances, defaultVirtualNodes);
+            ring = current;
+        }
+        return current;
+    }
+    
+    private static String cartOwner(Request request) {
+        if (!(request.getContext() instanceof RequestDataContext context) || context.getClientRequest() == null) {
+            return null;
+        }
+        
+        HttpHeaders headers = context.getClientRequest().getHeaders();
+        String userEmail = headers.getFirst(USER_HEADER);
+        if (StringUtils.hasText(userEmail)) {
+            return userEmail;
+        }
+        
+        String guestToken = headers.getFirst(GUEST_HEADER);
+        return StringUtils.hasText(guestToken) ? "guest:" + guestToken : null;
+    }
+    
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+    
+    /**
+     * Immutable ring for one set of instances.
+     */
+    private final class HashRing {
+        
+        private final Set<String> members = new HashSet<>();
+        private final NavigableMap<Long, ServiceInstance> points = new TreeMap<>();
+        
+        private HashRing(List<ServiceInstance> instances, int defaultVirtualNodes) {
+            for (ServiceInstance instance : instances) {
+                members.add(membership(instance));
+                
+                Map<String, String> metadata = instance.getMetadata();
+                String node = metadata.getOrDefault(RING_NODE_METADATA, InFlightRequestTracker.key(instance));
+                int virtualNodes = parseVirtualNodes(metadata.get(RING_VNODES_METADATA), defaultVirtualNodes);
+                for (int i = 0; i < virtualNodes; i++) {
+                    points.put(hash(node + "#" + i), instance);
+                }
+            }
+        }
+        
+        private boolean matches(List<ServiceInstance> instances) {
+            if (instances.size() != members.size()) {
+                return false;
+            }
+            for (ServiceInstance instance : instances) {
+                if (!members.contains(membership(instance))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private ServiceInstance locate(long hash, long capacity) {
+            List<ServiceInstance> visited = new ArrayList<>();
+            List<Collection<ServiceInstance>> clockwise = List.of(
+                points.tailMap(hash, true).values(), points.headMap(hash, false).values());
+            
+            for (Collection<ServiceInstance> arc : clockwise) {
+                for (ServiceInstance candidate : arc) {
+                    if (visited.contains(candidate)) {
+                        continue;
+                    }
+                    if (inFlightRequestTracker.inFlight(candidate) < capacity) {
+                        return candidate;
+                    }
+                    visited.add(candidate);
+                    if (visited.size() == members.size()) {
+                        // Everyone is at capacity; stick with the owner rather than spreading the key
+                        return visited.get(0);
+                    }
+                }
+            }
+            return visited.get(0);
+        }
+        
+        private String membership(ServiceInstance instance) {
+            Map<String, String> metadata = instance.getMetadata();
+            return InFlightRequestTracker.key(instance) + "|" + metadata.get(RING_NODE_METADATA)
+                + "|" + metadata.get(RING_VNODES_METADATA);
+        }
+        
+        private int parseVirtualNodes(String value, int defaultValue) {
+            if (!StringUtils.hasText(value)) {
+                return defaultValue;
+            }
+            try {
+                return Math.max(1, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid {} metadata: {}", RING_VNODES_METADATA, value);
+                return defaultValue;
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.ecommerce.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts requests the gateway currently has in flight per service instance. The gateway's
+ * load-balancer filter calls it when a request is routed to an instance and again when the
+ * exchange completes, so the counts reflect live load as seen from this gateway.
+ */
+public class InFlightRequestTracker implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+    
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return RequestDataContext.class.isAssignableFrom(requestContextClass)
+            && ResponseData.class.isAssignableFrom(responseClass)
+            && ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+    
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+    
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (lbResponse.hasServer()) {
+            counter(lbResponse.getServer()).incrementAndGet();
+        }
+    }
+    
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse != null && lbResponse.hasServer()) {
+            counter(lbResponse.getServer()).updateAndGet(count -> Math.max(0, count - 1));
+        }
+    }
+    
+    public int inFlight(ServiceInstance instance) {
+        AtomicInteger count = inFlight.get(key(instance));
+        return count != null ? count.get() : 0;
+    }
+    
+    public int total(Collection<ServiceInstance> instances) {
+        int total = 0;
+        for (ServiceInstance instance : instances) {
+            total += inFlight(instance);
+        }
+        return total;
+    }
+    
+    private AtomicInteger counter(ServiceInstance instance) {
+        return inFlight.computeIfAbsent(key(instance), key -> new AtomicInteger());
+    }
+    
+    static String key(ServiceInstance instance) {
+        return instance.getInstanceId() != null ? instance.getInstanceId() : instance.getHost() + ":" + instance.getPort();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.ecommerce.cart.config;
+
+import com.example.ecommerce.common.dto.UIBean;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Service-to-service authentication for {@code /api/cart/internal/**}: the price fan-out
+ * trigger and the cart change feed.
+ *
+ * Callers must send the shared secret from {@code cart.internal.token} in the
+ * {@code X-Internal-Token} header. The gateway already refuses these paths; this check is what
+ * protects them from anything that can reach the service directly. With no token configured
+ * every internal call is refused.
+ */
+@Configuration
+@Profile("!reactive")
+public class InternalApiConfig implements WebMvcConfigurer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(InternalApiConfig.class);
+    
+    public static final String INTERNAL_TOKEN_HEADER = "X-Internal-Token";
+    
+    private final ObjectMapper objectMapper;
+    
+    @Value("${cart.internal.token:}")
+    private String internalToken;
+    
+    @Autowired
+    public InternalApiConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!StringUtils.hasText(internalToken)) {
+            logger.warn("cart.internal.token is not set; all /api/cart/internal calls will be refused");
+        }
+        registry.addInterceptor(new InternalTokenInterceptor()).addPathPatterns("/api/cart/internal/**");
+    }
+    
+    private boolean isAuthorized(String presented) {
+        if (!StringUtils.hasText(internalToken) || presented == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(internalToken.getBytes(StandardCharsets.UTF_8),
+            presented.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private final class InternalTokenInterceptor implements HandlerInterceptor {
+        
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+                throws Exception {
+            if (isAuthorized(request.getHeader(INTERNAL_TOKEN_HEADER))) {
+                return true;
+            }
+            
+            logger.warn("Refused internal cart call without a valid service token: {} {} from {}",
+                request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), UIBean.error("Service authentication required"));
+            return false;
+        }
+    }
+}
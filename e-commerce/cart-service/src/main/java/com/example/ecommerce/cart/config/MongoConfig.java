@@ -2,11 +2,13 @@ package com.example.ecommerce.cart.config;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.data.mongodb.core.MongoTemplate;
@@ -53,6 +55,9 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     @Value("${spring.data.mongodb.server-selection-timeout:30000}")
     private int serverSelectionTimeout;
     
+    @Value("${cart.read.max-staleness-seconds:90}")
+    private long maxStalenessSeconds;
+    
     @Override
     protected String getDatabaseName() {
         return databaseName;
@@ -65,9 +70,14 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
     
     @Override
     public MongoClient mongoClient() {
+        return MongoClients.create(mongoClientSettings());
+    }
+    
+    @Override
+    protected MongoClientSettings mongoClientSettings() {
         ConnectionString connectionString = new ConnectionString(mongoUri);
         
-        MongoClientSettings mongoClientSettings = MongoClientSettings.builder()
+        return MongoClientSettings.builder()
             .applyConnectionString(connectionString)
             .applyToConnectionPoolSettings(builder -> builder
                 .minSize(minPoolSize)
@@ -81,15 +91,25 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
             .applyToClusterSettings(builder -> builder
                 .serverSelectionTimeout(serverSelectionTimeout, TimeUnit.MILLISECONDS))
             .build();
-        
-        return MongoClients.create(mongoClientSettings);
     }
     
     @Bean
+    @Primary
     public MongoTemplate mongoTemplate() {
         return new MongoTemplate(mongoClient(), getDatabaseName());
     }
     
+    /**
+     * Template for cart reads that may be served by a secondary. Secondaries lagging more than
+     * {@code cart.read.max-staleness-seconds} (90s minimum) are not selected.
+     */
+    @Bean
+    public MongoTemplate secondaryMongoTemplate() {
+        MongoTemplate template = new MongoTemplate(mongoClient(), getDatabaseName());
+        template.setReadPreference(ReadPreference.secondaryPreferred(maxStalenessSeconds, TimeUnit.SECONDS));
+        return template;
+    }
+    
     @Override
     protected boolean autoIndexCreation() {
         return true;
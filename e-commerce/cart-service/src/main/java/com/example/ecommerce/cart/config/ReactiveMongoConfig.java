@@ -0,0 +1,48 @@
+package com.example.ecommerce.cart.config;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reactive driver for the non-blocking cart endpoints. Shares the connection settings and the
+ * mapping converter of {@link MongoConfig}, so both clients read and write the same documents
+ * the same way; only the pool wait is shortened, since a request that cannot get a connection
+ * quickly is better failed than parked.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveMongoConfig {
+    
+    @Value("${spring.data.mongodb.database:cartdb}")
+    private String databaseName;
+    
+    @Value("${cart.reactive.max-wait-time-ms:2000}")
+    private long maxWaitTime;
+    
+    @Bean(destroyMethod = "close")
+    public MongoClient reactiveMongoClient(MongoConfig mongoConfig) {
+        MongoClientSettings settings = MongoClientSettings.builder(mongoConfig.mongoClientSettings())
+            .applyToConnectionPoolSettings(builder -> builder
+                .maxWaitTime(maxWaitTime, TimeUnit.MILLISECONDS))
+            .build();
+        
+        return MongoClients.create(settings);
+    }
+    
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(MongoClient reactiveMongoClient,
+                                                       MappingMongoConverter mappingMongoConverter) {
+        return new ReactiveMongoTemplate(new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient, databaseName),
+            mappingMongoConverter);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.ecommerce.cart.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+@Configuration
+@Profile("!reactive")
+public class RestTemplateConfig {
+    
+    @Value("${services.http.connect-timeout:1s}")
+    private Duration connectTimeout;
+    
+    @Value("${services.http.read-timeout:2s}")
+    private Duration readTimeout;
+    
+    /**
+     * Bounded timeouts: cart reads call product-service inline, so a hung dependency must fail
+     * fast and let the cart be served with its stored prices.
+     */
+    @Bean
+    @LoadBalanced
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder) {
+        return restTemplateBuilder
+            .setConnectTimeout(connectTimeout)
+            .setReadTimeout(readTimeout)
+            .build();
+    }
+}
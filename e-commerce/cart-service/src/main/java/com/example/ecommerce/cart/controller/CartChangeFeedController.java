@@ -0,0 +1,82 @@
+package com.example.ecommerce.cart.controller;
+
+import com.example.ecommerce.cart.dto.CartChangeEventDto;
+import com.example.ecommerce.cart.service.CartChangeFeed;
+import com.example.ecommerce.common.dto.UIBean;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Long-poll NDJSON feed of cart line changes for analytics consumers. One event per line; the
+ * stream position after the batch is returned in {@code X-Resume-Token}.
+ *
+ * Events carry owner emails and cart contents, so the feed is internal only: the gateway
+ * refuses the path on every route, and callers must present the service token checked by
+ * {@link com.example.ecommerce.cart.config.InternalApiConfig}.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/cart/internal/changes")
+public class CartChangeFeedController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CartChangeFeedController.class);
+    
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
+    private final CartChangeFeed cartChangeFeed;
+    private final ObjectMapper objectMapper;
+    
+    @Autowired
+    public CartChangeFeedController(CartChangeFeed cartChangeFeed, ObjectMapper objectMapper) {
+        this.cartChangeFeed = cartChangeFeed;
+        this.objectMapper = objectMapper;
+    }
+    
+    @GetMapping
+    public ResponseEntity<?> poll(
+            @RequestParam String consumer,
+            @RequestParam(required = false) String resumeToken,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long waitMs,
+            @RequestParam(defaultValue = "false") boolean reset) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Polling cart change feed, consumer: {}, limit: {}, waitMs: {}", consumer, limit, waitMs);
+        }
+        
+        try {
+            CartChangeFeed.Batch batch = cartChangeFeed.poll(consumer, resumeToken, limit, waitMs, reset);
+            
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            for (CartChangeEventDto event : batch.getEvents()) {
+                body.write(objectMapper.writeValueAsBytes(event));
+                body.write('\n');
+            }
+            
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(NDJSON);
+            if (batch.getResumeToken() != null) {
+                response.header("X-Resume-Token", batch.getResumeToken());
+            }
+            return response.body(body.toByteArray());
+        } catch (Exception e) {
+            logger.error("Error polling cart change feed, consumer: {}", consumer, e);
+            UIBean<Void> errorResponse = new UIBean<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error occurred: " + e.getMessage());
+            errorResponse.setResponse("ERROR");
+            return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
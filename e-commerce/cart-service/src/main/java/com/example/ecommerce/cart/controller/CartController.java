@@ -1,40 +1,65 @@
 package com.example.ecommerce.cart.controller;
 
 import com.example.ecommerce.cart.dto.AddItemRequest;
+import com.example.ecommerce.cart.dto.BatchCartRequest;
 import com.example.ecommerce.cart.dto.CartDto;
+import com.example.ecommerce.cart.dto.CartSnapshotDto;
+import com.example.ecommerce.cart.dto.CartSummaryDto;
+import com.example.ecommerce.cart.dto.ProductPriceDto;
 import com.example.ecommerce.cart.dto.UpdateItemRequest;
+import com.example.ecommerce.cart.service.CartRepriceFanout;
 import com.example.ecommerce.cart.service.CartService;
 import com.example.ecommerce.common.dto.UIBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
+
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/cart")
 public class CartController {
     
     private static final Logger logger = LoggerFactory.getLogger(CartController.class);
     
+    /**
+     * Cart version after the caller's latest write. Sent back on reads, it keeps a secondary
+     * that has not replicated that write from answering.
+     */
+    static final String CONSISTENCY_TOKEN = "X-Cart-Consistency-Token";
+    
     private final CartService cartService;
+    private final CartRepriceFanout cartRepriceFanout;
     
     @Autowired
-    public CartController(CartService cartService) {
+    public CartController(CartService cartService, CartRepriceFanout cartRepriceFanout) {
         this.cartService = cartService;
+        this.cartRepriceFanout = cartRepriceFanout;
     }
     
     @GetMapping
-    public ResponseEntity<UIBean<CartDto>> getCart(@RequestHeader("X-User-Email") String userEmail) {
+    public ResponseEntity<UIBean<CartDto>> getCart(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken,
+            @RequestHeader(value = CONSISTENCY_TOKEN, required = false) Long consistencyToken) {
+        
         if (logger.isDebugEnabled()) {
             logger.debug("Fetching cart for user: {}", userEmail);
         }
         
         try {
-            CartDto cart = cartService.getCartByUserEmail(userEmail);
+            String cartOwner = CartService.resolveCartOwner(userEmail, guestToken);
+            CartDto cart = cartService.getCartByUserEmail(cartOwner, consistencyToken);
             UIBean<CartDto> response = UIBean.success(cart, "Cart retrieved successfully");
-            return new ResponseEntity<>(response, HttpStatus.OK);
+            return new ResponseEntity<>(response, consistencyHeaders(cart.getVersion()), HttpStatus.OK);
         } catch (Exception e) {
             logger.error("Error fetching cart for user: {}", userEmail, e);
             UIBean<CartDto> errorResponse = new UIBean<>();
@@ -45,16 +70,54 @@ public class CartController {
         }
     }
     
+    @GetMapping("/summary")
+    public ResponseEntity<UIBean<CartSummaryDto>> getCartSummary(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+            @RequestHeader(value = CONSISTENCY_TOKEN, required = false) Long consistencyToken) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching cart summary for user: {}", userEmail);
+        }
+        
+        try {
+            String cartOwner = CartService.resolveCartOwner(userEmail, guestToken);
+            CartSummaryDto summary = cartService.getCartSummary(cartOwner, consistencyToken);
+            String eTag = summaryETag(summary);
+            
+            // Badges poll this on every page; let clients revalidate instead of re-downloading
+            CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+            if (ifNoneMatch != null && (ifNoneMatch.contains(eTag) || ifNoneMatch.trim().equals("*"))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+            }
+            
+            UIBean<CartSummaryDto> response = UIBean.success(summary, "Cart summary retrieved successfully");
+            return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl).body(response);
+        } catch (Exception e) {
+            logger.error("Error fetching cart summary for user: {}", userEmail, e);
+            UIBean<CartSummaryDto> errorResponse = new UIBean<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error occurred: " + e.getMessage());
+            errorResponse.setResponse("ERROR");
+            return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
     @GetMapping("/or-create")
-    public ResponseEntity<UIBean<CartDto>> getOrCreateCart(@RequestHeader("X-User-Email") String userEmail) {
+    public ResponseEntity<UIBean<CartDto>> getOrCreateCart(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken) {
+        
         if (logger.isDebugEnabled()) {
             logger.debug("Getting or creating cart for user: {}", userEmail);
         }
         
         try {
-            CartDto cart = cartService.getOrCreateCart(userEmail);
+            String cartOwner = CartService.resolveCartOwner(userEmail, guestToken);
+            CartDto cart = cartService.getOrCreateCart(cartOwner);
             UIBean<CartDto> response = UIBean.success(cart, "Cart retrieved successfully");
-            return new ResponseEntity<>(response, HttpStatus.OK);
+            return new ResponseEntity<>(response, consistencyHeaders(cart.getVersion()), HttpStatus.OK);
         } catch (Exception e) {
             logger.error("Error getting or creating cart for user: {}", userEmail, e);
             UIBean<CartDto> errorResponse = new UIBean<>();
@@ -67,7 +130,8 @@ public class CartController {
     
     @PostMapping("/items")
     public ResponseEntity<UIBean<CartDto>> addItem(
-            @RequestHeader("X-User-Email") String userEmail, 
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken,
             @RequestBody AddItemRequest request) {
         
         if (logger.isDebugEnabled()) {
@@ -75,9 +139,10 @@ public class CartController {
         }
         
         try {
-            CartDto cart = cartService.addItem(userEmail, request);
+            String cartOwner = CartService.resolveCartOwner(userEmail, guestToken);
+            CartDto cart = cartService.addItem(cartOwner, request);
             UIBean<CartDto> response = UIBean.success(cart, "Item added to cart successfully");
-            return new ResponseEntity<>(response, HttpStatus.OK);
+            return new ResponseEntity<>(response, consistencyHeaders(cart.getVersion()), HttpStatus.OK);
         } catch (Exception e) {
             logger.error("Error adding item to cart for user: {}", userEmail, e);
             UIBean<CartDto> errorResponse = new UIBean<>();
@@ -90,7 +155,8 @@ public class CartController {
     
     @PutMapping("/items/{productId}")
     public ResponseEntity<UIBean<CartDto>> updateItem(
-            @RequestHeader("X-User-Email") String userEmail,
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken,
             @PathVariable Long productId,
             @RequestBody UpdateItemRequest request) {
         
@@ -100,9 +166,10 @@ public class CartController {
         }
         
         try {
-            CartDto cart = cartService.updateItem(userEmail, productId, request.getQuantity());
+            String cartOwner = CartService.resolveCartOwner(userEmail, guestToken);
+            CartDto cart = cartService.updateItem(cartOwner, productId, request.getQuantity());
             UIBean<CartDto> response = UIBean.success(cart, "Cart item updated successfully");
-            return new ResponseEntity<>(response, HttpStatus.OK);
+            return new ResponseEntity<>(response, consistencyHeaders(cart.getVersion()), HttpStatus.OK);
         } catch (Exception e) {
             logger.error("Error updating cart item for user: {}, productId: {}", userEmail, productId, e);
             UIBean<CartDto> errorResponse = new UIBean<>();
@@ -115,7 +182,8 @@ public class CartController {
     
     @DeleteMapping("/items/{productId}")
     public ResponseEntity<UIBean<CartDto>> removeItem(
-            @RequestHeader("X-User-Email") String userEmail,
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken,
             @PathVariable Long productId) {
         
         if (logger.isDebugEnabled()) {
@@ -123,9 +191,10 @@ public class CartController {
         }
         
         try {
-            CartDto cart = cartService.removeItem(userEmail, productId);
+            String cartOwner = CartService.resolveCartOwner(userEmail, guestToken);
+            CartDto cart = cartService.removeItem(cartOwner, productId);
             UIBean<CartDto> response = UIBean.success(cart, "Item removed from cart successfully");
-            return new ResponseEntity<>(response, HttpStatus.OK);
+            return new ResponseEntity<>(response, consistencyHeaders(cart.getVersion()), HttpStatus.OK);
         } catch (Exception e) {
             logger.error("Error removing item from cart for user: {}, productId: {}", userEmail, productId, e);
             UIBean<CartDto> errorResponse = new UIBean<>();
@@ -136,16 +205,141 @@ public class CartController {
         }
     }
     
+    @PostMapping("/batch")
+    public ResponseEntity<UIBean<CartDto>> applyBatch(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken,
+            @RequestBody BatchCartRequest request) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Applying batch cart update for user: {}, request: {}", userEmail, request);
+        }
+        
+        try {
+            String cartOwner = CartService.resolveCartOwner(userEmail, guestToken);
+            CartDto cart = cartService.applyBatch(cartOwner, request);
+            UIBean<CartDto> response = UIBean.success(cart, "Cart updated successfully");
+            return new ResponseEntity<>(response, consistencyHeaders(cart.getVersion()), HttpStatus.OK);
+        } catch (Exception e) {
+            logger.error("Error applying batch cart update for user: {}", userEmail, e);
+            UIBean<CartDto> errorResponse = new UIBean<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error occurred: " + e.getMessage());
+            errorResponse.setResponse("ERROR");
+            return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    @PostMapping("/merge")
+    public ResponseEntity<UIBean<CartDto>> mergeGuestCart(
+            @RequestHeader("X-User-Email") String userEmail,
+            @RequestHeader("X-Guest-Token") String guestToken) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Merging guest cart for user: {}", userEmail);
+        }
+        
+        try {
+            CartDto cart = cartService.mergeGuestCart(userEmail, guestToken);
+            UIBean<CartDto> response = UIBean.success(cart, "Guest cart merged successfully");
+            return new ResponseEntity<>(response, consistencyHeaders(cart.getVersion()), HttpStatus.OK);
+        } catch (Exception e) {
+            logger.error("Error merging guest cart for user: {}", userEmail, e);
+            UIBean<CartDto> errorResponse = new UIBean<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error occurred: " + e.getMessage());
+            errorResponse.setResponse("ERROR");
+            return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    @PostMapping("/checkout-snapshot")
+    public ResponseEntity<UIBean<CartSnapshotDto>> freezeCart(
+            @RequestHeader("X-User-Email") String userEmail) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Freezing cart for checkout, user: {}", userEmail);
+        }
+        
+        try {
+            CartSnapshotDto snapshot = cartService.freezeCart(userEmail);
+            UIBean<CartSnapshotDto> response = UIBean.success(snapshot, "Cart snapshot created successfully");
+            return new ResponseEntity<>(response, HttpStatus.CREATED);
+        } catch (Exception e) {
+            logger.error("Error freezing cart for user: {}", userEmail, e);
+            UIBean<CartSnapshotDto> errorResponse = new UIBean<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error occurred: " + e.getMessage());
+            errorResponse.setResponse("ERROR");
+            return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    @GetMapping("/snapshots/{snapshotId}")
+    public ResponseEntity<UIBean<CartSnapshotDto>> getCartSnapshot(
+            @RequestHeader("X-User-Email") String userEmail,
+            @PathVariable String snapshotId) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching cart snapshot: {} for user: {}", snapshotId, userEmail);
+        }
+        
+        try {
+            CartSnapshotDto snapshot = cartService.getCartSnapshot(userEmail, snapshotId);
+            UIBean<CartSnapshotDto> response = UIBean.success(snapshot, "Cart snapshot retrieved successfully");
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            logger.error("Error fetching cart snapshot: {} for user: {}", snapshotId, userEmail, e);
+            UIBean<CartSnapshotDto> errorResponse = new UIBean<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error occurred: " + e.getMessage());
+            errorResponse.setResponse("ERROR");
+            return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
+    /**
+     * Internal trigger that queues a price fan-out over the carts holding a product, for a
+     * caller holding the service token. Nothing calls it automatically yet; product-service
+     * does not notify cart-service of price changes. Only the product id is used; the new price
+     * is read back from product-service. Blocked at the gateway and guarded by the service
+     * token check in {@link com.example.ecommerce.cart.config.InternalApiConfig}.
+     */
+    @PostMapping("/internal/reprice")
+    public ResponseEntity<UIBean<Void>> repriceProduct(@RequestBody ProductPriceDto request) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Queueing cart price fan-out: {}", request);
+        }
+        
+        try {
+            cartRepriceFanout.submit(request.getId());
+            UIBean<Void> response = UIBean.success(null, "Cart price update accepted");
+            return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+        } catch (Exception e) {
+            logger.error("Error queueing cart price fan-out: {}", request, e);
+            UIBean<Void> errorResponse = new UIBean<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error occurred: " + e.getMessage());
+            errorResponse.setResponse("ERROR");
+            return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
     @DeleteMapping
-    public ResponseEntity<UIBean<Void>> clearCart(@RequestHeader("X-User-Email") String userEmail) {
+    public ResponseEntity<UIBean<Void>> clearCart(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken) {
+        
         if (logger.isDebugEnabled()) {
             logger.debug("Clearing cart for user: {}", userEmail);
         }
         
         try {
-            cartService.clearCart(userEmail);
+            String cartOwner = CartService.resolveCartOwner(userEmail, guestToken);
+            Long version = cartService.clearCart(cartOwner);
             UIBean<Void> response = UIBean.success(null, "Cart cleared successfully");
-            return new ResponseEntity<>(response, HttpStatus.OK);
+            return new ResponseEntity<>(response, consistencyHeaders(version), HttpStatus.OK);
         } catch (Exception e) {
             logger.error("Error clearing cart for user: {}", userEmail, e);
             UIBean<Void> errorResponse = new UIBean<>();
@@ -155,4 +349,23 @@ public class CartController {
             return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+    
+    private static HttpHeaders consistencyHeaders(Long version) {
+        HttpHeaders headers = new HttpHeaders();
+        if (version != null) {
+            headers.set(CONSISTENCY_TOKEN, version.toString());
+        }
+        return headers;
+    }
+    
+    /**
+     * Strong validator over everything the summary shows. With the write-behind cache the stored
+     * version only moves on flush, so the version alone would not change with every mutation.
+     */
+    static String summaryETag(CartSummaryDto summary) {
+        String state = summary.getVersion() + ":" + summary.getItemCount() + ":"
+            + summary.getTotal().stripTrailingZeros().toPlainString() + ":"
+            + (summary.getUpdatedAt() != null ? summary.getUpdatedAt().getTime() : 0);
+        return "\"" + DigestUtils.md5DigestAsHex(state.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
 }
@@ -0,0 +1,193 @@
+package com.example.ecommerce.cart.controller;
+
+import com.example.ecommerce.cart.dto.AddItemRequest;
+import com.example.ecommerce.cart.dto.CartDto;
+import com.example.ecommerce.cart.dto.CartSummaryDto;
+import com.example.ecommerce.cart.dto.UpdateItemRequest;
+import com.example.ecommerce.cart.service.CartService;
+import com.example.ecommerce.cart.service.ReactiveCartService;
+import com.example.ecommerce.common.dto.UIBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux variant of {@link CartController}, active under the {@code reactive} profile. Serves the
+ * single-item endpoints with the same paths, headers and response envelope; batch updates,
+ * guest-cart merges and checkout snapshots are only available in the default servlet mode.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/cart")
+public class ReactiveCartController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCartController.class);
+    
+    private final ReactiveCartService reactiveCartService;
+    
+    @Autowired
+    public ReactiveCartController(ReactiveCartService reactiveCartService) {
+        this.reactiveCartService = reactiveCartService;
+    }
+    
+    @GetMapping
+    public Mono<ResponseEntity<UIBean<CartDto>>> getCart(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching cart for user: {}", userEmail);
+        }
+        
+        return Mono.defer(() -> reactiveCartService.getCartByUserEmail(CartService.resolveCartOwner(userEmail, guestToken)))
+            .map(cart -> new ResponseEntity<>(UIBean.success(cart, "Cart retrieved successfully"), HttpStatus.OK))
+            .onErrorResume(e -> {
+                logger.error("Error fetching cart for user: {}", userEmail, e);
+                return errorResponse(e);
+            });
+    }
+    
+    @GetMapping("/summary")
+    public Mono<ResponseEntity<UIBean<CartSummaryDto>>> getCartSummary(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching cart summary for user: {}", userEmail);
+        }
+        
+        return Mono.defer(() -> reactiveCartService.getCartSummary(CartService.resolveCartOwner(userEmail, guestToken)))
+            .map(summary -> {
+                String eTag = CartController.summaryETag(summary);
+                CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+                if (ifNoneMatch != null && (ifNoneMatch.contains(eTag) || ifNoneMatch.trim().equals("*"))) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl)
+                        .<UIBean<CartSummaryDto>>build();
+                }
+                
+                UIBean<CartSummaryDto> response = UIBean.success(summary, "Cart summary retrieved successfully");
+                return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl).body(response);
+            })
+            .onErrorResume(e -> {
+                logger.error("Error fetching cart summary for user: {}", userEmail, e);
+                return errorResponse(e);
+            });
+    }
+    
+    @GetMapping("/or-create")
+    public Mono<ResponseEntity<UIBean<CartDto>>> getOrCreateCart(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Getting or creating cart for user: {}", userEmail);
+        }
+        
+        return Mono.defer(() -> reactiveCartService.getOrCreateCart(CartService.resolveCartOwner(userEmail, guestToken)))
+            .map(cart -> new ResponseEntity<>(UIBean.success(cart, "Cart retrieved successfully"), HttpStatus.OK))
+            .onErrorResume(e -> {
+                logger.error("Error getting or creating cart for user: {}", userEmail, e);
+                return errorResponse(e);
+            });
+    }
+    
+    @PostMapping("/items")
+    public Mono<ResponseEntity<UIBean<CartDto>>> addItem(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken,
+            @RequestBody AddItemRequest request) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Adding item to cart for user: {}, request: {}", userEmail, request);
+        }
+        
+        return Mono.defer(() -> reactiveCartService.addItem(CartService.resolveCartOwner(userEmail, guestToken), request))
+            .map(cart -> new ResponseEntity<>(UIBean.success(cart, "Item added to cart successfully"), HttpStatus.OK))
+            .onErrorResume(e -> {
+                logger.error("Error adding item to cart for user: {}", userEmail, e);
+                return errorResponse(e);
+            });
+    }
+    
+    @PutMapping("/items/{productId}")
+    public Mono<ResponseEntity<UIBean<CartDto>>> updateItem(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken,
+            @PathVariable Long productId,
+            @RequestBody UpdateItemRequest request) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Updating cart item for user: {}, productId: {}, quantity: {}", 
+                userEmail, productId, request.getQuantity());
+        }
+        
+        return Mono.defer(() -> reactiveCartService.updateItem(CartService.resolveCartOwner(userEmail, guestToken),
+                productId, request.getQuantity()))
+            .map(cart -> new ResponseEntity<>(UIBean.success(cart, "Cart item updated successfully"), HttpStatus.OK))
+            .onErrorResume(e -> {
+                logger.error("Error updating cart item for user: {}, productId: {}", userEmail, productId, e);
+                return errorResponse(e);
+            });
+    }
+    
+    @DeleteMapping("/items/{productId}")
+    public Mono<ResponseEntity<UIBean<CartDto>>> removeItem(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken,
+            @PathVariable Long productId) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Removing item from cart for user: {}, productId: {}", userEmail, productId);
+        }
+        
+        return Mono.defer(() -> reactiveCartService.removeItem(CartService.resolveCartOwner(userEmail, guestToken), productId))
+            .map(cart -> new ResponseEntity<>(UIBean.success(cart, "Item removed from cart successfully"), HttpStatus.OK))
+            .onErrorResume(e -> {
+                logger.error("Error removing item from cart for user: {}, productId: {}", userEmail, productId, e);
+                return errorResponse(e);
+            });
+    }
+    
+    @DeleteMapping
+    public Mono<ResponseEntity<UIBean<Void>>> clearCart(
+            @RequestHeader(value = "X-User-Email", required = false) String userEmail,
+            @RequestHeader(value = "X-Guest-Token", required = false) String guestToken) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Clearing cart for user: {}", userEmail);
+        }
+        
+        return Mono.defer(() -> reactiveCartService.clearCart(CartService.resolveCartOwner(userEmail, guestToken)))
+            .then(Mono.fromSupplier(() -> new ResponseEntity<>(UIBean.<Void>success(null, "Cart cleared successfully"),
+                HttpStatus.OK)))
+            .onErrorResume(e -> {
+                logger.error("Error clearing cart for user: {}", userEmail, e);
+                return errorResponse(e);
+            });
+    }
+    
+    private static <T> Mono<ResponseEntity<UIBean<T>>> errorResponse(Throwable e) {
+        UIBean<T> errorResponse = new UIBean<>();
+        errorResponse.setSuccess(false);
+        errorResponse.setResponse("ERROR");
+        
+        // Load shedding is reported as 503 so clients and the gateway know to back off and retry
+        if (e instanceof ResponseStatusException statusException) {
+            HttpStatusCode status = statusException.getStatusCode();
+            errorResponse.setMessage("Error occurred: " + statusException.getReason());
+            return Mono.just(new ResponseEntity<>(errorResponse, status));
+        }
+        
+        errorResponse.setMessage("Error occurred: " + e.getMessage());
+        return Mono.just(new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR));
+    }
+}
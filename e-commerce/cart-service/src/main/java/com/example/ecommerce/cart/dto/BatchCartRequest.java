@@ -0,0 +1,15 @@
+package com.example.ecommerce.cart.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCartRequest {
+    private List<CartOperationRequest> operations = new ArrayList<>();
+}
@@ -0,0 +1,39 @@
+package com.example.ecommerce.cart.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * One line-level cart change, as emitted on the analytics change feed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CartChangeEventDto {
+    
+    public enum Type {
+        ITEM_ADDED, ITEM_REMOVED, QUANTITY_CHANGED
+    }
+    
+    private Type type;
+    private String cartId;
+    private String userEmail;
+    private boolean guest;
+    private Long productId;
+    private Integer quantity;
+    private Integer previousQuantity;
+    private BigDecimal price;
+    private Date occurredAt;
+    
+    /**
+     * Position of the change that produced this event. Passing it back on the next poll marks
+     * everything up to and including this change as processed.
+     */
+    private String resumeToken;
+}
@@ -16,7 +16,10 @@ public class CartDto {
     private String id;
     private String userEmail;
     private List<CartItemDto> items = new ArrayList<>();
+    private int itemCount;
     private BigDecimal total;
+    private Long version;
+    private List<CartItemChangeDto> changedItems = new ArrayList<>();
     private Date createdAt;
     private Date updatedAt;
 }
@@ -0,0 +1,24 @@
+package com.example.ecommerce.cart.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartItemChangeDto {
+    
+    public enum ChangeType {
+        PRICE_CHANGED, NAME_CHANGED, UNAVAILABLE
+    }
+    
+    private Long productId;
+    private ChangeType type;
+    private String previousName;
+    private String currentName;
+    private BigDecimal previousPrice;
+    private BigDecimal currentPrice;
+}
@@ -0,0 +1,19 @@
+package com.example.ecommerce.cart.dto;
+
+import com.example.ecommerce.cart.model.CartMutation;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperationRequest {
+    private CartMutation.Type type;
+    private Long productId;
+    private String productName;
+    private BigDecimal price;
+    private Integer quantity;
+}
@@ -0,0 +1,25 @@
+package com.example.ecommerce.cart.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSnapshotDto {
+    private String id;
+    private String userEmail;
+    private Long cartVersion;
+    private List<CartItemDto> items = new ArrayList<>();
+    private int itemCount;
+    private BigDecimal total;
+    private List<CartItemChangeDto> changedItems = new ArrayList<>();
+    private Date createdAt;
+    private Date expiresAt;
+}
@@ -0,0 +1,18 @@
+package com.example.ecommerce.cart.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSummaryDto {
+    private int itemCount;
+    private BigDecimal total = BigDecimal.ZERO;
+    private Long version;
+    private Date updatedAt;
+}
@@ -0,0 +1,21 @@
+package com.example.ecommerce.cart.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * The part of a product-service product that cart lines are checked against.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductPriceDto {
+    private Long id;
+    private String name;
+    private BigDecimal price;
+}
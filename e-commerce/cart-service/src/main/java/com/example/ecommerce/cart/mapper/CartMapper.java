@@ -2,8 +2,11 @@ package com.example.ecommerce.cart.mapper;
 
 import com.example.ecommerce.cart.dto.CartDto;
 import com.example.ecommerce.cart.dto.CartItemDto;
+import com.example.ecommerce.cart.dto.CartSnapshotDto;
+import com.example.ecommerce.cart.dto.CartSummaryDto;
 import com.example.ecommerce.cart.model.Cart;
 import com.example.ecommerce.cart.model.CartItem;
+import com.example.ecommerce.cart.model.CartSnapshot;
 import org.springframework.stereotype.Component;
 
 import java.util.stream.Collectors;
@@ -22,13 +25,57 @@ public class CartMapper {
         dto.setItems(cart.getItems().stream()
             .map(this::toItemDto)
             .collect(Collectors.toList()));
+        dto.setItemCount(cart.getItemCount());
         dto.setTotal(cart.getTotal());
+        dto.setVersion(cart.getVersion());
         dto.setCreatedAt(cart.getCreatedAt());
         dto.setUpdatedAt(cart.getUpdatedAt());
         
         return dto;
     }
     
+    public CartSummaryDto toSummaryDto(Cart cart) {
+        if (cart == null) {
+            return null;
+        }
+        
+        CartSummaryDto dto = new CartSummaryDto();
+        dto.setItemCount(cart.getItemCount());
+        dto.setTotal(cart.getTotal());
+        dto.setVersion(cart.getVersion());
+        dto.setUpdatedAt(cart.getUpdatedAt());
+        
+        return dto;
+    }
+    
+    public CartSnapshotDto toSnapshotDto(CartSnapshot snapshot) {
+        if (snapshot == null) {
+            return null;
+        }
+        
+        CartSnapshotDto dto = new CartSnapshotDto();
+        dto.setId(snapshot.getId());
+        dto.setUserEmail(snapshot.getUserEmail());
+        dto.setCartVersion(snapshot.getCartVersion());
+        dto.setItems(snapshot.getItems().stream()
+            .map(line -> {
+                CartItemDto item = new CartItemDto();
+                item.setProductId(line.getProductId());
+                item.setProductName(line.getProductName());
+                item.setPrice(line.getPrice());
+                item.setQuantity(line.getQuantity());
+                item.setSubtotal(line.getSubtotal());
+                return item;
+            })
+            .collect(Collectors.toList()));
+        dto.setItemCount(snapshot.getItemCount());
+        dto.setTotal(snapshot.getTotal());
+        dto.setCreatedAt(snapshot.getCreatedAt());
+        dto.setExpiresAt(snapshot.getExpiresAt());
+        
+        return dto;
+    }
+    
     public CartItemDto toItemDto(CartItem item) {
         if (item == null) {
             return null;
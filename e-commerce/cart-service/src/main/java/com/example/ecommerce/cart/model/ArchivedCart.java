@@ -0,0 +1,62 @@
+package com.example.ecommerce.cart.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compact copy of an abandoned cart, kept for analytics and win-back campaigns after the live
+ * cart is removed. Product names are dropped; lines keep only what is needed to rebuild totals.
+ */
+@Document(collection = "cart_archive")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedCart {
+    
+    @Id
+    private String id;
+    private String userEmail;
+    private int itemCount;
+    
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal total;
+    
+    private List<Line> items = new ArrayList<>();
+    private Date lastUpdatedAt;
+    private Date archivedAt;
+    
+    public static ArchivedCart of(Cart cart, Date archivedAt) {
+        ArchivedCart archived = new ArchivedCart();
+        archived.setId(cart.getId());
+        archived.setUserEmail(cart.getUserEmail());
+        archived.setItemCount(cart.getItemCount());
+        archived.setTotal(cart.getTotal());
+        for (CartItem item : cart.getItems()) {
+            archived.getItems().add(new Line(item.getProductId(), item.getQuantity(), item.getPrice()));
+        }
+        archived.setLastUpdatedAt(cart.getUpdatedAt());
+        archived.setArchivedAt(archivedAt);
+        return archived;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private Long productId;
+        private Integer quantity;
+        
+        @Field(targetType = FieldType.DECIMAL128)
+        private BigDecimal price;
+    }
+}
@@ -1,27 +1,239 @@
 package com.example.ecommerce.cart.model;
 
 import com.example.ecommerce.common.entity.AbstractMongoDocument;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Document(collection = "carts")
+@CompoundIndex(name = "idx_carts_items_product_id", def = "{'items.productId': 1, '_id': 1}")
 @Data
 @EqualsAndHashCode(callSuper = true)
 @NoArgsConstructor
-@AllArgsConstructor
 public class Cart extends AbstractMongoDocument {
+    
+    /**
+     * Anonymous carts are stored under {@code guest:<token>} in place of an email, so they share
+     * the unique owner index and every cart operation with signed-in carts.
+     */
+    public static final String GUEST_PREFIX = "guest:";
+    
+    @Indexed(name = "uk_carts_user_email", unique = true)
     private String userEmail;
+    private boolean guest;
     private List<CartItem> items = new ArrayList<>();
     
-    public BigDecimal getTotal() {
-        return items.stream()
-            .map(CartItem::getSubtotal)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    @Version
+    private Long version;
+    
+    /**
+     * Sum of line quantities and line subtotals. Both are stored on the document and adjusted
+     * by every mutation (here and in the repository's updates), so reads never walk
+     * the items to price the cart.
+     */
+    private int itemCount;
+    
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal total = BigDecimal.ZERO;
+    
+    /**
+     * Guest carts already merged into this one, as {@code <id>:<version>}, newest last and
+     * capped by the merge pipeline. A merge retried before the guest cart was deleted finds its
+     * marker here and is not applied twice.
+     */
+    private List<String> mergedGuestCarts = new ArrayList<>();
+    
+    /**
+     * In-memory lookup of lines by product id, so in-memory mutations on carts with thousands
+     * of lines do not scan the list. Removal still shifts the lines after the removed one, which
+     * keeps the cart in the order lines were added. Never persisted. Lines can only change through this class
+     * ({@link #getItems()} is read-only), and every method that changes them keeps the index in
+     * step; a new list, from {@link #setItems} or the mapping layer writing the field, is
+     * detected by identity and indexed on the next lookup.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient Map<Long, CartItem> itemIndex;
+    
+    // The list itemIndex was built from
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient List<CartItem> indexedItems;
+    
+    public static Cart newCart(String owner) {
+        Cart cart = new Cart();
+        cart.setUserEmail(owner);
+        cart.setGuest(isGuestOwner(owner));
+        return cart;
+    }
+    
+    public static boolean isGuestOwner(String owner) {
+        return owner != null && owner.startsWith(GUEST_PREFIX);
+    }
+    
+    /**
+     * Read-only view of the lines; change them through the methods below.
+     */
+    public List<CartItem> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+    
+    public void setItems(List<CartItem> items) {
+        this.items = items;
+        this.itemIndex = null;
+        this.indexedItems = null;
+    }
+    
+    public CartItem findItem(Long productId) {
+        return itemIndex().get(productId);
+    }
+    
+    public void addItem(CartItem item) {
+        CartItem existing = findItem(item.getProductId());
+        if (existing != null) {
+            BigDecimal previousSubtotal = existing.getSubtotal();
+            existing.setQuantity(existing.getQuantity() + item.getQuantity());
+            total = total.subtract(previousSubtotal).add(existing.getSubtotal());
+        } else {
+            items.add(item);
+            itemIndex().put(item.getProductId(), item);
+            total = total.add(item.getSubtotal());
+        }
+        itemCount += item.getQuantity();
+    }
+    
+    public boolean updateItemQuantity(Long productId, int quantity) {
+        CartItem existing = findItem(productId);
+        if (existing == null) {
+            return false;
+        }
+        BigDecimal previousSubtotal = existing.getSubtotal();
+        itemCount += quantity - existing.getQuantity();
+        existing.setQuantity(quantity);
+        total = total.subtract(previousSubtotal).add(existing.getSubtotal());
+        return true;
+    }
+    
+    public boolean removeItem(Long productId) {
+        CartItem existing = findItem(productId);
+        if (existing == null) {
+            return false;
+        }
+        removeLine(existing);
+        itemCount -= existing.getQuantity();
+        total = total.subtract(existing.getSubtotal());
+        return true;
+    }
+    
+    /**
+     * Refreshes a line from the catalog and marks it as checked. Returns {@code false} when the
+     * line is no longer in the cart.
+     */
+    public boolean repriceItem(Long productId, String productName, BigDecimal price, Date checkedAt) {
+        CartItem existing = findItem(productId);
+        if (existing == null) {
+            return false;
+        }
+        BigDecimal previousSubtotal = existing.getSubtotal();
+        existing.setProductName(productName);
+        existing.setPrice(price);
+        existing.setPriceCheckedAt(checkedAt);
+        total = total.subtract(previousSubtotal).add(existing.getSubtotal());
+        return true;
+    }
+    
+    public void clearItems() {
+        items.clear();
+        itemIndex = null;
+        indexedItems = null;
+        itemCount = 0;
+        total = BigDecimal.ZERO;
+    }
+    
+    /**
+     * Rebuilds line subtotals and cart totals from scratch. Only needed for documents written
+     * before totals were stored; regular mutations keep them up to date incrementally.
+     */
+    public void recalculateTotals() {
+        int count = 0;
+        BigDecimal sum = BigDecimal.ZERO;
+        for (CartItem item : items) {
+            item.recalculateSubtotal();
+            count += item.getQuantity();
+            sum = sum.add(item.getSubtotal());
+        }
+        itemCount = count;
+        total = sum;
+    }
+    
+    private Map<Long, CartItem> itemIndex() {
+        if (itemIndex == null || indexedItems != items) {
+            Map<Long, CartItem> index = new HashMap<>(Math.max(16, items.size() * 2));
+            for (CartItem item : items) {
+                // First line wins, as with a scan of the list, if a legacy document repeats a product
+                index.putIfAbsent(item.getProductId(), item);
+            }
+            itemIndex = index;
+            indexedItems = items;
+        }
+        return itemIndex;
+    }
+    
+    private void removeLine(CartItem line) {
+        itemIndex().remove(line.getProductId());
+        // Identity match: CartItem equality compares every field, which is wasted work here
+        for (int i = items.size() - 1; i >= 0; i--) {
+            if (items.get(i) == line) {
+                items.remove(i);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Deep copy used by in-memory mutation paths, so a failed change never leaks into the
+     * instance other readers are looking at.
+     */
+    public Cart copy() {
+        Cart copy = new Cart();
+        copy.setId(getId());
+        copy.setUserEmail(userEmail);
+        copy.setGuest(guest);
+        copy.setVersion(version);
+        copy.setItemCount(itemCount);
+        copy.setTotal(total);
+        copy.setMergedGuestCarts(mergedGuestCarts == null ? new ArrayList<>() : new ArrayList<>(mergedGuestCarts));
+        copy.setCreatedAt(getCreatedAt());
+        copy.setUpdatedAt(getUpdatedAt());
+        for (CartItem item : items) {
+            CartItem line = CartItem.of(item.getProductId(), item.getProductName(), item.getPrice(), item.getQuantity());
+            line.setPriceCheckedAt(item.getPriceCheckedAt());
+            copy.items.add(line);
+        }
+        return copy;
     }
 }
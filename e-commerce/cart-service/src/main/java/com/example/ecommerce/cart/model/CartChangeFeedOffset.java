@@ -0,0 +1,24 @@
+package com.example.ecommerce.cart.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Last change-stream position a change feed consumer has confirmed, keyed by consumer name.
+ */
+@Document(collection = "cart_change_offsets")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartChangeFeedOffset {
+    
+    @Id
+    private String consumer;
+    private String resumeToken;
+    private Date updatedAt;
+}
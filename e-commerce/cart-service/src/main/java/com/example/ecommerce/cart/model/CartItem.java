@@ -3,7 +3,11 @@ package com.example.ecommerce.cart.model;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
 import java.math.BigDecimal;
+import java.util.Date;
 
 @Data
 @NoArgsConstructor
@@ -11,10 +15,39 @@ import java.math.BigDecimal;
 public class CartItem {
     private Long productId;
     private String productName;
+    
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal price;
+    
     private Integer quantity;
     
-    public BigDecimal getSubtotal() {
-        return price.multiply(BigDecimal.valueOf(quantity));
+    // Stored with the line so reads and server-side total updates never have to multiply
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal subtotal;
+    
+    // Last time price and name were confirmed against product-service; null until the first check
+    private Date priceCheckedAt;
+    
+    public static CartItem of(Long productId, String productName, BigDecimal price, Integer quantity) {
+        CartItem item = new CartItem();
+        item.setProductId(productId);
+        item.setProductName(productName);
+        item.setPrice(price);
+        item.setQuantity(quantity);
+        return item;
+    }
+    
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+        recalculateSubtotal();
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+        recalculateSubtotal();
+    }
+    
+    public void recalculateSubtotal() {
+        this.subtotal = price != null && quantity != null ? price.multiply(BigDecimal.valueOf(quantity)) : null;
     }
 }
@@ -0,0 +1,77 @@
+package com.example.ecommerce.cart.model;
+
+import com.example.ecommerce.common.exception.ResourceNotFoundException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * One recorded change to a cart line. Mutations are applied to in-memory carts and kept
+ * until they are persisted, so they can be replayed on a fresh copy of the document if a
+ * versioned write loses a race.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartMutation {
+    
+    public enum Type {
+        ADD, UPDATE, REMOVE, CLEAR, REPRICE
+    }
+    
+    private Type type;
+    private Long productId;
+    private String productName;
+    private BigDecimal price;
+    private Integer quantity;
+    
+    public static CartMutation add(Long productId, String productName, BigDecimal price, int quantity) {
+        return new CartMutation(Type.ADD, productId, productName, price, quantity);
+    }
+    
+    public static CartMutation update(Long productId, int quantity) {
+        return new CartMutation(Type.UPDATE, productId, null, null, quantity);
+    }
+    
+    public static CartMutation remove(Long productId) {
+        return new CartMutation(Type.REMOVE, productId, null, null, null);
+    }
+    
+    public static CartMutation reprice(Long productId, String productName, BigDecimal price) {
+        return new CartMutation(Type.REPRICE, productId, productName, price, null);
+    }
+    
+    public static CartMutation clear() {
+        return new CartMutation(Type.CLEAR, null, null, null, null);
+    }
+    
+    public void applyTo(Cart cart) {
+        switch (type) {
+            case ADD:
+                cart.addItem(CartItem.of(productId, productName, price, quantity));
+                break;
+            case UPDATE:
+                if (!cart.updateItemQuantity(productId, quantity)) {
+                    throw new ResourceNotFoundException("Product not found in cart: " + productId);
+                }
+                break;
+            case REMOVE:
+                if (!cart.removeItem(productId)) {
+                    throw new ResourceNotFoundException("Product not found in cart: " + productId);
+                }
+                break;
+            case CLEAR:
+                cart.clearItems();
+                break;
+            case REPRICE:
+                // A line removed in the meantime has nothing left to reprice
+                cart.repriceItem(productId, productName, price, new Date());
+                break;
+            default:
+                throw new IllegalStateException("Unsupported cart mutation: " + type);
+        }
+    }
+}
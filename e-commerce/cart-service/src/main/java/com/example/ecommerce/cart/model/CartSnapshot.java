@@ -0,0 +1,103 @@
+package com.example.ecommerce.cart.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Frozen copy of a cart taken at checkout, which order-service reads by id instead of trusting
+ * lines re-sent by the client. Snapshots are only ever inserted, never updated.
+ *
+ * The id is a SHA-256 over the owner, the cart version and the lines, so freezing the same cart
+ * twice yields the same snapshot, and any change to a stored snapshot is detectable with
+ * {@link #isIntact()}. Snapshots expire through a TTL index on {@code expiresAt}.
+ */
+@Document(collection = "cart_snapshots")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CartSnapshot {
+    
+    @Id
+    private String id;
+    private String userEmail;
+    private Long cartVersion;
+    private List<Line> items = new ArrayList<>();
+    private int itemCount;
+    
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal total;
+    
+    private Date createdAt;
+    
+    @Indexed(name = "ttl_cart_snapshots_expires_at", expireAfter = "0s")
+    private Date expiresAt;
+    
+    public static CartSnapshot of(Cart cart, Date createdAt, Date expiresAt) {
+        List<Line> lines = new ArrayList<>(cart.getItems().size());
+        for (CartItem item : cart.getItems()) {
+            lines.add(new Line(item.getProductId(), item.getProductName(), item.getPrice(),
+                item.getQuantity(), item.getSubtotal()));
+        }
+        lines.sort(Comparator.comparing(Line::getProductId));
+        
+        String id = contentHash(cart.getUserEmail(), cart.getVersion(), lines);
+        return new CartSnapshot(id, cart.getUserEmail(), cart.getVersion(), lines, cart.getItemCount(),
+            cart.getTotal(), createdAt, expiresAt);
+    }
+    
+    public boolean isIntact() {
+        return id != null && id.equals(contentHash(userEmail, cartVersion, items));
+    }
+    
+    private static String contentHash(String userEmail, Long cartVersion, List<Line> lines) {
+        StringBuilder content = new StringBuilder()
+            .append(userEmail).append('|').append(cartVersion);
+        for (Line line : lines) {
+            // Length-prefixed name, so no product name can forge a line boundary
+            content.append('|').append(line.getProductId())
+                .append(':').append(line.getProductName().length()).append(':').append(line.getProductName())
+                .append(':').append(line.getPrice().stripTrailingZeros().toPlainString())
+                .append(':').append(line.getQuantity());
+        }
+        
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    @Getter
+    @NoArgsConstructor(access = AccessLevel.PRIVATE)
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Line {
+        private Long productId;
+        private String productName;
+        
+        @Field(targetType = FieldType.DECIMAL128)
+        private BigDecimal price;
+        
+        private Integer quantity;
+        
+        @Field(targetType = FieldType.DECIMAL128)
+        private BigDecimal subtotal;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.ecommerce.cart.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Lease on a scheduled job shared by every cart-service instance, keyed by job name. Whoever
+ * holds an unexpired lease runs the job; the others skip that run.
+ */
+@Document(collection = "scheduler_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchedulerLease {
+    
+    @Id
+    private String name;
+    private String owner;
+    private Date lockedUntil;
+}
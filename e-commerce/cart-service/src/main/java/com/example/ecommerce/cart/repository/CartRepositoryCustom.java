@@ -0,0 +1,67 @@
+package com.example.ecommerce.cart.repository;
+
+import com.example.ecommerce.cart.model.Cart;
+import com.example.ecommerce.cart.model.CartItem;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Single round-trip cart mutations built on Mongo update operators. Each method touches only
+ * the fields it changes and returns the cart as it looks after the write, or {@code null} when
+ * the targeted cart (or cart line) does not exist. Every mutation also increments the cart's
+ * {@code version}, so versioned saves elsewhere detect that the document moved underneath them.
+ */
+public interface CartRepositoryCustom {
+    
+    Cart findOrCreate(String userEmail);
+    
+    /**
+     * Reads only the stored totals, version and timestamps of a cart; {@code items} is left empty.
+     */
+    Cart findSummary(String userEmail);
+    
+    /**
+     * Reads a cart from a secondary when one is available. The result may trail recent writes;
+     * callers compare its {@code version} with what they expect.
+     */
+    Cart findOnSecondary(String userEmail);
+    
+    Cart findSummaryOnSecondary(String userEmail);
+    
+    /**
+     * Adds {@code quantity} to the product's line, or returns {@code null} when the cart has no
+     * line for it. {@code price} is the price being added at; the line is incremented at its
+     * stored price with a positional {@code $inc}.
+     */
+    Cart incrementItemQuantity(String userEmail, Long productId, BigDecimal price, int quantity);
+    
+    Cart pushItem(String userEmail, CartItem item);
+    
+    /**
+     * Reads the line, then applies a positional update guarded on the values read, so only the
+     * line and the totals are written. Returns {@code null} when the cart has no line for the
+     * product; throws {@code OptimisticLockingFailureException} when the line changed in between.
+     */
+    Cart setItemQuantity(String userEmail, Long productId, int quantity);
+    
+    /**
+     * Same read-then-guarded-write as {@link #setItemQuantity}, with a {@code $pull} of the line.
+     */
+    Cart pullItem(String userEmail, Long productId);
+    
+    Cart clearItems(String userEmail);
+    
+    /**
+     * Adds the given lines to a cart in one atomic upsert, summing quantities for products the
+     * cart already holds and appending the rest. A merge whose {@code mergeMarker} the cart
+     * already records is not applied again; the cart is returned as it is.
+     */
+    Cart mergeItems(String userEmail, List<CartItem> items, String mergeMarker);
+    
+    /**
+     * Removes a cart only if it is still at {@code version}. Returns {@code false} if it was
+     * changed or is already gone.
+     */
+    boolean removeCartAtVersion(String userEmail, Long version);
+}
@@ -0,0 +1,133 @@
+package com.example.ecommerce.cart.repository;
+
+import com.example.ecommerce.cart.model.Cart;
+import com.example.ecommerce.cart.model.CartItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.example.ecommerce.cart.repository.CartUpdates.returnNew;
+
+public class CartRepositoryImpl implements CartRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    private final MongoTemplate secondaryMongoTemplate;
+    
+    @Autowired
+    public CartRepositoryImpl(MongoTemplate mongoTemplate,
+                              @Qualifier("secondaryMongoTemplate") MongoTemplate secondaryMongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.secondaryMongoTemplate = secondaryMongoTemplate;
+    }
+    
+    @Override
+    public Cart findOrCreate(String userEmail) {
+        return mongoTemplate.findAndModify(CartUpdates.byOwner(userEmail), CartUpdates.createIfMissing(userEmail),
+            returnNew().upsert(true), Cart.class);
+    }
+    
+    @Override
+    public Cart findSummary(String userEmail) {
+        return mongoTemplate.findOne(CartUpdates.summary(userEmail), Cart.class);
+    }
+    
+    @Override
+    public Cart findOnSecondary(String userEmail) {
+        return secondaryMongoTemplate.findOne(CartUpdates.byOwner(userEmail), Cart.class);
+    }
+    
+    @Override
+    public Cart findSummaryOnSecondary(String userEmail) {
+        return secondaryMongoTemplate.findOne(CartUpdates.summary(userEmail), Cart.class);
+    }
+    
+    @Override
+    public Cart incrementItemQuantity(String userEmail, Long productId, BigDecimal price, int quantity) {
+        Cart cart = mongoTemplate.findAndModify(CartUpdates.byOwnerWithLineAt(userEmail, productId, price),
+            CartUpdates.incrementLine(price, quantity), returnNew(), Cart.class);
+        if (cart != null) {
+            return cart;
+        }
+        
+        // Stored at another price: increment at that price, read from the line
+        CartItem line = findLine(userEmail, productId);
+        if (line == null) {
+            return null;
+        }
+        return applied(productId, mongoTemplate.findAndModify(CartUpdates.byOwnerWithLineAt(userEmail, productId, line.getPrice()),
+            CartUpdates.incrementLine(line.getPrice(), quantity), returnNew(), Cart.class));
+    }
+    
+    @Override
+    public Cart pushItem(String userEmail, CartItem item) {
+        return mongoTemplate.findAndModify(CartUpdates.byOwnerWithoutLine(userEmail, item.getProductId()),
+            CartUpdates.pushLine(userEmail, item), returnNew().upsert(true), Cart.class);
+    }
+    
+    @Override
+    public Cart setItemQuantity(String userEmail, Long productId, int quantity) {
+        CartItem line = findLine(userEmail, productId);
+        if (line == null) {
+            return null;
+        }
+        return applied(productId, mongoTemplate.findAndModify(CartUpdates.byOwnerWithLineAs(userEmail, line),
+            CartUpdates.setLineQuantity(line, quantity), returnNew(), Cart.class));
+    }
+    
+    @Override
+    public Cart pullItem(String userEmail, Long productId) {
+        CartItem line = findLine(userEmail, productId);
+        if (line == null) {
+            return null;
+        }
+        return applied(productId, mongoTemplate.findAndModify(CartUpdates.byOwnerWithLineAs(userEmail, line),
+            CartUpdates.pullLine(line), returnNew(), Cart.class));
+    }
+    
+    @Override
+    public Cart clearItems(String userEmail) {
+        return mongoTemplate.findAndModify(CartUpdates.byOwner(userEmail), CartUpdates.clearLines(), returnNew(), Cart.class);
+    }
+    
+    @Override
+    public Cart mergeItems(String userEmail, List<CartItem> items, String mergeMarker) {
+        try {
+            return mongoTemplate.findAndModify(CartUpdates.byOwnerNotMerged(userEmail, mergeMarker),
+                CartUpdates.mergeLines(userEmail, items, mergeMarker), returnNew().upsert(true), Cart.class);
+        } catch (DuplicateKeyException e) {
+            // The cart exists but did not match: either this merge was applied already, or
+            // another request created the cart first and the caller should retry
+            Cart merged = mongoTemplate.findOne(CartUpdates.byOwnerMerged(userEmail, mergeMarker), Cart.class);
+            if (merged == null) {
+                throw e;
+            }
+            return merged;
+        }
+    }
+    
+    @Override
+    public boolean removeCartAtVersion(String userEmail, Long version) {
+        return mongoTemplate.remove(CartUpdates.byOwnerAtVersion(userEmail, version), Cart.class).getDeletedCount() > 0;
+    }
+    
+    private CartItem findLine(String userEmail, Long productId) {
+        Cart cart = mongoTemplate.findOne(CartUpdates.lineOf(userEmail, productId), Cart.class);
+        return cart == null || cart.getItems().isEmpty() ? null : cart.getItems().get(0);
+    }
+    
+    /**
+     * A guarded line update that matched nothing lost a race with another write to the line;
+     * callers retry through {@code CartWriteRetrier}.
+     */
+    private static Cart applied(Long productId, Cart cart) {
+        if (cart == null) {
+            throw new OptimisticLockingFailureException("Cart line changed concurrently for product: " + productId);
+        }
+        return cart;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.ecommerce.cart.repository;
+
+import com.example.ecommerce.cart.model.CartSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CartSnapshotRepository extends MongoRepository<CartSnapshot, String> {
+}
@@ -0,0 +1,279 @@
+package com.example.ecommerce.cart.repository;
+
+import com.example.ecommerce.cart.model.Cart;
+import com.example.ecommerce.cart.model.CartItem;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Queries and update definitions behind every atomic cart mutation. Kept separate from the
+ * template that runs them so the blocking repository and the reactive service issue exactly
+ * the same writes.
+ */
+public final class CartUpdates {
+    
+    private static final Decimal128 ZERO = new Decimal128(BigDecimal.ZERO);
+    
+    // Merge markers kept per cart; a retry only ever needs the latest one
+    private static final int MAX_MERGE_MARKERS = 10;
+    
+    private CartUpdates() {
+    }
+    
+    public static Query byOwner(String userEmail) {
+        return Query.query(Criteria.where("userEmail").is(userEmail));
+    }
+    
+    public static Query byOwnerWithLine(String userEmail, Long productId) {
+        return Query.query(Criteria.where("userEmail").is(userEmail)
+            .and("items.productId").is(productId));
+    }
+    
+    /**
+     * Matches the cart only while the product's line is stored at {@code price}, so a positional
+     * update can move the line subtotal and the cart total by a known amount.
+     */
+    public static Query byOwnerWithLineAt(String userEmail, Long productId, BigDecimal price) {
+        return Query.query(Criteria.where("userEmail").is(userEmail)
+            .and("items").elemMatch(Criteria.where("productId").is(productId).and("price").is(new Decimal128(price))));
+    }
+    
+    /**
+     * Matches the cart only while the line still holds the quantity, price and subtotal it was
+     * read with, so a positional update can move the cart totals by a delta computed from that
+     * read. A miss means the line changed in between and the read has to be repeated.
+     */
+    public static Query byOwnerWithLineAs(String userEmail, CartItem line) {
+        return Query.query(Criteria.where("userEmail").is(userEmail)
+            .and("items").elemMatch(Criteria.where("productId").is(line.getProductId())
+                .and("quantity").is(line.getQuantity())
+                .and("price").is(new Decimal128(line.getPrice()))
+                .and("subtotal").is(new Decimal128(line.getSubtotal()))));
+    }
+    
+    /**
+     * Reads only the product's line: the returned cart's {@code items} holds that one line.
+     */
+    public static Query lineOf(String userEmail, Long productId) {
+        Query query = byOwnerWithLine(userEmail, productId);
+        query.fields().include("_id").elemMatch("items", Criteria.where("productId").is(productId));
+        return query;
+    }
+    
+    /**
+     * The $ne guard keeps a concurrent push of the same product from creating a second line.
+     */
+    public static Query byOwnerWithoutLine(String userEmail, Long productId) {
+        return Query.query(Criteria.where("userEmail").is(userEmail)
+            .and("items.productId").ne(productId));
+    }
+    
+    /**
+     * Matches the cart only if the merge identified by {@code mergeMarker} has not been applied.
+     */
+    public static Query byOwnerNotMerged(String userEmail, String mergeMarker) {
+        return Query.query(Criteria.where("userEmail").is(userEmail)
+            .and("mergedGuestCarts").ne(mergeMarker));
+    }
+    
+    public static Query byOwnerMerged(String userEmail, String mergeMarker) {
+        return Query.query(Criteria.where("userEmail").is(userEmail)
+            .and("mergedGuestCarts").is(mergeMarker));
+    }
+    
+    public static Query byOwnerAtVersion(String userEmail, Long version) {
+        return Query.query(Criteria.where("userEmail").is(userEmail)
+            .and("version").is(version));
+    }
+    
+    public static Query summary(String userEmail) {
+        Query query = byOwner(userEmail);
+        query.fields().include("userEmail", "itemCount", "total", "version", "createdAt", "updatedAt");
+        return query;
+    }
+    
+    public static Update createIfMissing(String userEmail) {
+        Date now = new Date();
+        return new Update()
+            .setOnInsert("items", new ArrayList<>())
+            .setOnInsert("guest", Cart.isGuestOwner(userEmail))
+            .setOnInsert("itemCount", 0)
+            .setOnInsert("total", ZERO)
+            .setOnInsert("version", 0L)
+            .setOnInsert("createdAt", now)
+            .setOnInsert("updatedAt", now);
+    }
+    
+    public static Update pushLine(String userEmail, CartItem item) {
+        return new Update()
+            .push("items", item)
+            .inc("itemCount", item.getQuantity())
+            .inc("total", new Decimal128(item.getSubtotal()))
+            .inc("version", 1)
+            .currentDate("updatedAt")
+            .setOnInsert("guest", Cart.isGuestOwner(userEmail))
+            .setOnInsert("createdAt", new Date());
+    }
+    
+    /**
+     * Positional {@code $inc} of the matched line's quantity and subtotal and of the cart
+     * totals; touches only those fields. Use with {@link #byOwnerWithLineAt} so {@code price}
+     * is the line's stored price.
+     */
+    public static Update incrementLine(BigDecimal price, int quantity) {
+        Decimal128 amount = new Decimal128(price.multiply(BigDecimal.valueOf(quantity)));
+        return new Update()
+            .inc("items.$.quantity", quantity)
+            .inc("items.$.subtotal", amount)
+            .inc("itemCount", quantity)
+            .inc("total", amount)
+            .inc("version", 1)
+            .currentDate("updatedAt");
+    }
+    
+    /**
+     * Positional {@code $set} of the matched line's quantity and subtotal, with the cart totals
+     * moved by the difference from {@code line}, the line as it was read. Use with
+     * {@link #byOwnerWithLineAs} for the same line.
+     */
+    public static Update setLineQuantity(CartItem line, int quantity) {
+        BigDecimal subtotal = line.getPrice().multiply(BigDecimal.valueOf(quantity));
+        return new Update()
+            .set("items.$.quantity", quantity)
+            .set("items.$.subtotal", new Decimal128(subtotal))
+            .inc("itemCount", quantity - line.getQuantity())
+            .inc("total", new Decimal128(subtotal.subtract(line.getSubtotal())))
+            .inc("version", 1)
+            .currentDate("updatedAt");
+    }
+    
+    /**
+     * {@code $pull} of the product's line, with the cart totals reduced by what {@code line}, the
+     * line as it was read, contributed. Use with {@link #byOwnerWithLineAs} for the same line.
+     */
+    public static Update pullLine(CartItem line) {
+        return new Update()
+            .pull("items", new Document("productId", line.getProductId()))
+            .inc("itemCount", -line.getQuantity())
+            .inc("total", new Decimal128(line.getSubtotal().negate()))
+            .inc("version", 1)
+            .currentDate("updatedAt");
+    }
+    
+    public static Update clearLines() {
+        return new Update()
+            .set("items", new ArrayList<>())
+            .set("itemCount", 0)
+            .set("total", ZERO)
+            .inc("version", 1)
+            .currentDate("updatedAt");
+    }
+    
+    /**
+     * Adds the lines to the cart, summing quantities for products already present and
+     * appending the rest, then recomputes the totals and records {@code mergeMarker}, all in one
+     * pipeline upsert.
+     */
+    public static UpdateDefinition mergeLines(String userEmail, List<CartItem> items, String mergeMarker) {
+        List<Document> incoming = new ArrayList<>(items.size());
+        for (CartItem item : items) {
+            incoming.add(new Document("productId", item.getProductId())
+                .append("productName", item.getProductName())
+                .append("price", new Decimal128(item.getPrice()))
+                .append("quantity", item.getQuantity())
+                .append("subtotal", new Decimal128(item.getSubtotal()))
+                .append("priceCheckedAt", item.getPriceCheckedAt()));
+        }
+        // $literal keeps client-supplied strings (product names) from being read as field paths
+        Document incomingLines = new Document("$literal", incoming);
+        
+        Document matchingLine = new Document("$arrayElemAt", Arrays.asList(new Document("$filter", new Document("input", incomingLines)
+            .append("cond", new Document("$eq", Arrays.asList("$$this.productId", "$$item.productId")))), 0));
+        Document summedQuantity = new Document("$add", Arrays.asList("$$item.quantity",
+            new Document("$ifNull", Arrays.asList("$$incoming.quantity", 0))));
+        Document summedLine = new Document("$mergeObjects", Arrays.asList("$$item", new Document("quantity", summedQuantity)
+            .append("subtotal", new Document("$multiply", Arrays.asList("$$item.price", summedQuantity)))));
+        
+        Document summed = new Document("$map", new Document("input", current("items", new ArrayList<>()))
+            .append("as", "item")
+            .append("in", new Document("$let", new Document("vars", new Document("incoming", matchingLine))
+                .append("in", summedLine))));
+        
+        Document appended = new Document("$filter", new Document("input", incomingLines)
+            .append("cond", new Document("$not", List.of(new Document("$in", Arrays.asList("$$this.productId",
+                current("items.productId", new ArrayList<>())))))));
+        
+        Document totals = new Document("itemCount", new Document("$sum", "$items.quantity"))
+            .append("total", new Document("$sum", "$items.subtotal"))
+            .append("guest", Cart.isGuestOwner(userEmail))
+            .append("version", new Document("$add", Arrays.asList(current("version", -1L), 1)))
+            .append("mergedGuestCarts", new Document("$concatArrays", Arrays.asList(
+                new Document("$slice", Arrays.asList(current("mergedGuestCarts", new ArrayList<>()), -(MAX_MERGE_MARKERS - 1))),
+                List.of(mergeMarker))))
+            .append("created_at", current("created_at", "$$NOW"))
+            .append("updated_at", "$$NOW");
+        
+        return AggregationUpdate.from(Arrays.asList(
+            stage("$set", new Document("items", new Document("$concatArrays", Arrays.asList(summed, appended)))),
+            stage("$set", totals)));
+    }
+    
+    /**
+     * Carts holding the product at a price other than {@code price}, so re-running a fan-out
+     * skips carts it already updated.
+     */
+    public static Criteria holdingLineNotPricedAt(Long productId, BigDecimal price) {
+        return Criteria.where("items").elemMatch(Criteria.where("productId").is(productId)
+            .and("price").ne(new Decimal128(price)));
+    }
+    
+    /**
+     * Applies a catalog price and name to the product's line and recomputes the cart total from
+     * the line subtotals. Quantities are untouched.
+     */
+    public static UpdateDefinition repriceLine(Long productId, String productName, BigDecimal price, Date checkedAt) {
+        Decimal128 newPrice = new Decimal128(price);
+        Document repricedLine = new Document("$mergeObjects", Arrays.asList("$$item", new Document("productName", new Document("$literal", productName))
+            .append("price", newPrice)
+            .append("subtotal", new Document("$multiply", Arrays.asList(newPrice, "$$item.quantity")))
+            .append("priceCheckedAt", checkedAt)));
+        
+        Document items = new Document("$map", new Document("input", "$items")
+            .append("as", "item")
+            .append("in", new Document("$cond", Arrays.asList(
+                new Document("$eq", Arrays.asList("$$item.productId", productId)), repricedLine, "$$item"))));
+        
+        Document totals = new Document("total", new Document("$sum", "$items.subtotal"))
+            .append("version", new Document("$add", Arrays.asList(current("version", 0L), 1)))
+            .append("updated_at", "$$NOW");
+        
+        return AggregationUpdate.from(Arrays.asList(
+            stage("$set", new Document("items", items)),
+            stage("$set", totals)));
+    }
+    
+    public static FindAndModifyOptions returnNew() {
+        return FindAndModifyOptions.options().returnNew(true);
+    }
+    
+    private static Document current(String field, Object fallback) {
+        return new Document("$ifNull", Arrays.asList("$" + field, fallback));
+    }
+    
+    private static AggregationOperation stage(String operator, Object body) {
+        return context -> new Document(operator, body);
+    }
+}
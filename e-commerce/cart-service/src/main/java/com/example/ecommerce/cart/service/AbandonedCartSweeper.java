@@ -0,0 +1,298 @@
+package com.example.ecommerce.cart.service;
+
+import com.example.ecommerce.cart.model.ArchivedCart;
+import com.example.ecommerce.cart.model.Cart;
+import com.example.ecommerce.cart.model.SchedulerLease;
+import com.mongodb.MongoCommandException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expires abandoned carts.
+ *
+ * Empty carts are left to Mongo: a partial TTL index on {@code updated_at} (only documents with
+ * {@code itemCount == 0}) removes them once they have been idle for the configured TTL. Carts
+ * that still hold items are worth keeping, so a scheduled sweeper copies stale ones into the
+ * compact {@code cart_archive} collection and then deletes them, a bounded number of small
+ * batches per run with a pause between batches to keep the load on the primary low.
+ *
+ * A cart is only deleted if it is still stale at delete time, so a user coming back in the
+ * middle of a sweep keeps their cart.
+ *
+ * Every instance schedules the sweep, but a run only starts after taking the sweep lease in
+ * {@code scheduler_leases}, so one instance sweeps at a time. The lease expires on its own
+ * if its holder dies mid-run.
+ *
+ * The partial TTL index only serves queries for empty carts. The stale-cart query and both
+ * backlog counts use {@code {itemCount, updated_at}}, and the guest query uses a partial
+ * {@code updated_at} index over guest carts, so neither scans the collection.
+ */
+@Component
+public class AbandonedCartSweeper {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedCartSweeper.class);
+    
+    private static final String EMPTY_CART_TTL_INDEX = "ttl_carts_empty_updated_at";
+    private static final String ITEM_COUNT_UPDATED_INDEX = "idx_carts_item_count_updated_at";
+    private static final String GUEST_UPDATED_INDEX = "idx_carts_guest_updated_at";
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+    private static final String SWEEP_LEASE = "abandoned-cart-sweep";
+    
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    private final AtomicLong expiredEmptyBacklog = new AtomicLong();
+    private final AtomicLong staleCartBacklog = new AtomicLong();
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    @Value("${cart.expiry.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${cart.expiry.empty-cart-ttl:30d}")
+    private Duration emptyCartTtl;
+    
+    @Value("${cart.expiry.archive-after:90d}")
+    private Duration archiveAfter;
+    
+    @Value("${cart.expiry.guest-cart-ttl:7d}")
+    private Duration guestCartTtl;
+    
+    @Value("${cart.expiry.batch-size:200}")
+    private int batchSize;
+    
+    @Value("${cart.expiry.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+    
+    @Value("${cart.expiry.batch-pause-ms:200}")
+    private long batchPauseMillis;
+    
+    @Value("${cart.expiry.lease-duration:15m}")
+    private Duration leaseDuration;
+    
+    @Autowired
+    public AbandonedCartSweeper(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        
+        meterRegistry.gauge("cart.expiry.empty.backlog", expiredEmptyBacklog);
+        meterRegistry.gauge("cart.expiry.stale.backlog", staleCartBacklog);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureTtlIndex() {
+        if (!enabled) {
+            return;
+        }
+        
+        Index index = new Index()
+            .on("updated_at", Sort.Direction.ASC)
+            .named(EMPTY_CART_TTL_INDEX)
+            .expire(emptyCartTtl)
+            .partial(PartialIndexFilter.of(Criteria.where("itemCount").is(0)));
+        
+        try {
+            mongoTemplate.indexOps(Cart.class).ensureIndex(index);
+        } catch (DataAccessException e) {
+            if (!(e.getCause() instanceof MongoCommandException cause) || cause.getErrorCode() != INDEX_OPTIONS_CONFLICT) {
+                throw e;
+            }
+            // Index exists with a different TTL; adjust it in place instead of rebuilding
+            mongoTemplate.getDb().runCommand(new Document("collMod", mongoTemplate.getCollectionName(Cart.class))
+                .append("index", new Document("name", EMPTY_CART_TTL_INDEX)
+                    .append("expireAfterSeconds", emptyCartTtl.getSeconds())));
+        }
+        
+        mongoTemplate.indexOps(Cart.class).ensureIndex(new Index()
+            .on("itemCount", Sort.Direction.ASC)
+            .on("updated_at", Sort.Direction.ASC)
+            .named(ITEM_COUNT_UPDATED_INDEX));
+        mongoTemplate.indexOps(Cart.class).ensureIndex(new Index()
+            .on("updated_at", Sort.Direction.ASC)
+            .named(GUEST_UPDATED_INDEX)
+            .partial(PartialIndexFilter.of(Criteria.where("guest").is(true))));
+        
+        logger.info("Empty carts expire after {} of inactivity", emptyCartTtl);
+    }
+    
+    @Scheduled(fixedDelayString = "${cart.expiry.sweep-interval-ms:3600000}",
+        initialDelayString = "${cart.expiry.sweep-initial-delay-ms:60000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        
+        if (!acquireLease()) {
+            logger.debug("Cart sweep skipped, another instance holds the lease");
+            return;
+        }
+        
+        try {
+            sweepStaleCarts();
+        } finally {
+            releaseLease();
+        }
+    }
+    
+    private void sweepStaleCarts() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Date cutoff = new Date(System.currentTimeMillis() - archiveAfter.toMillis());
+        Query stale = Query.query(Criteria.where("updated_at").lt(cutoff).and("itemCount").gt(0).and("guest").ne(true));
+        
+        int archived = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<Cart> carts = mongoTemplate.find(Query.of(stale)
+                .with(Sort.by(Sort.Direction.ASC, "updated_at"))
+                .limit(batchSize), Cart.class);
+            if (carts.isEmpty()) {
+                break;
+            }
+            
+            archived += archiveBatch(carts, cutoff);
+            if (carts.size() < batchSize) {
+                break;
+            }
+            pause();
+        }
+        
+        removeStaleGuestCarts();
+        
+        Date emptyCutoff = new Date(System.currentTimeMillis() - emptyCartTtl.toMillis());
+        expiredEmptyBacklog.set(mongoTemplate.count(
+            Query.query(Criteria.where("updated_at").lt(emptyCutoff).and("itemCount").is(0)), Cart.class));
+        staleCartBacklog.set(mongoTemplate.count(Query.of(stale), Cart.class));
+        sample.stop(meterRegistry.timer("cart.expiry.sweep.duration"));
+        
+        if (archived > 0) {
+            logger.info("Archived {} abandoned carts, remaining stale carts: {}", archived, staleCartBacklog.get());
+        }
+    }
+    
+    /**
+     * Takes the sweep lease if it is free, expired or already ours. When another instance holds
+     * it, the upsert finds no match and its insert collides with the existing lease document.
+     */
+    private boolean acquireLease() {
+        Date now = new Date();
+        Query available = Query.query(Criteria.where("_id").is(SWEEP_LEASE)
+            .orOperator(Criteria.where("lockedUntil").lt(now), Criteria.where("owner").is(instanceId)));
+        Update take = new Update()
+            .set("owner", instanceId)
+            .set("lockedUntil", new Date(now.getTime() + leaseDuration.toMillis()));
+        
+        try {
+            SchedulerLease lease = mongoTemplate.findAndModify(available, take,
+                FindAndModifyOptions.options().returnNew(true).upsert(true), SchedulerLease.class);
+            return lease != null && instanceId.equals(lease.getOwner());
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+    
+    private void releaseLease() {
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(SWEEP_LEASE).and("owner").is(instanceId)),
+                new Update().set("lockedUntil", new Date()), SchedulerLease.class);
+        } catch (DataAccessException e) {
+            // The lease still expires on its own
+            logger.warn("Failed to release cart sweep lease", e);
+        }
+    }
+    
+    /**
+     * Guest carts have nobody to win back, so once idle past their TTL they are deleted rather
+     * than archived, in the same throttled batches.
+     */
+    private void removeStaleGuestCarts() {
+        Date cutoff = new Date(System.currentTimeMillis() - guestCartTtl.toMillis());
+        Query staleGuests = Query.query(Criteria.where("guest").is(true).and("updated_at").lt(cutoff));
+        staleGuests.fields().include("_id");
+        
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<String> ids = mongoTemplate.find(Query.of(staleGuests).limit(batchSize), Cart.class).stream()
+                .map(Cart::getId)
+                .toList();
+            if (ids.isEmpty()) {
+                break;
+            }
+            
+            long deleted = mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids).and("updated_at").lt(cutoff)),
+                Cart.class).getDeletedCount();
+            counter("cart.expiry.guest.removed").increment(deleted);
+            if (ids.size() < batchSize) {
+                break;
+            }
+            pause();
+        }
+    }
+    
+    private int archiveBatch(List<Cart> carts, Date cutoff) {
+        Date now = new Date();
+        List<String> ids = new ArrayList<>(carts.size());
+        BulkOperations archive = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ArchivedCart.class);
+        for (Cart cart : carts) {
+            ids.add(cart.getId());
+            ArchivedCart archived = ArchivedCart.of(cart, now);
+            archive.replaceOne(Query.query(Criteria.where("_id").is(archived.getId())), archived,
+                FindAndReplaceOptions.options().upsert());
+        }
+        archive.execute();
+        
+        long deleted = mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids).and("updated_at").lt(cutoff)),
+            Cart.class).getDeletedCount();
+        
+        if (deleted < ids.size()) {
+            // Some carts were touched after we read them; they are live again, so drop their archive copies
+            List<String> revived = mongoTemplate.findDistinct(Query.query(Criteria.where("_id").in(ids)),
+                "_id", Cart.class, String.class);
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(revived)), ArchivedCart.class);
+        }
+        
+        counter("cart.expiry.archived").increment(deleted);
+        return (int) deleted;
+    }
+    
+    private void pause() {
+        if (batchPauseMillis <= 0) {
+            return;
+        }
+        
+        try {
+            Thread.sleep(batchPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private Counter counter(String name) {
+        return meterRegistry.counter(name);
+    }
+}
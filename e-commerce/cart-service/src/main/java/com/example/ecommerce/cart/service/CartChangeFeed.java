@@ -0,0 +1,265 @@
+package com.example.ecommerce.cart.service;
+
+import com.example.ecommerce.cart.dto.CartChangeEventDto;
+import com.example.ecommerce.cart.model.Cart;
+import com.example.ecommerce.cart.model.CartChangeFeedOffset;
+import com.example.ecommerce.common.exception.InvalidArgumentException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental feed of line-level cart changes for analytics, read from a Mongo change stream
+ * on the carts collection.
+ *
+ * Each poll resumes the stream at the consumer's confirmed position and long-polls until at
+ * least one event is available or the wait runs out. Events are derived by comparing the
+ * pre- and post-images of each cart document, so they are the same whether the write was a
+ * pipeline update, a versioned save or a write-behind flush. A consumer confirms progress by
+ * passing back the token of the last event it processed; until then the same events are
+ * served again, so delivery is at-least-once.
+ *
+ * Pre-images need {@code changeStreamPreAndPostImages} on the collection (MongoDB 6.0+),
+ * which is switched on at startup. Deleted carts (expiry, merges) produce no events.
+ */
+@Component
+public class CartChangeFeed {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CartChangeFeed.class);
+    
+    private static final Pattern CONSUMER_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final long MAX_AWAIT_MILLIS = 1000;
+    
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${cart.change-feed.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${cart.change-feed.max-batch-size:1000}")
+    private int maxBatchSize;
+    
+    @Value("${cart.change-feed.max-wait-ms:30000}")
+    private long maxWaitMillis;
+    
+    @Autowired
+    public CartChangeFeed(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void enablePreImages() {
+        if (!enabled) {
+            return;
+        }
+        
+        try {
+            if (!mongoTemplate.collectionExists(Cart.class)) {
+                mongoTemplate.createCollection(Cart.class);
+            }
+            mongoTemplate.getDb().runCommand(new Document("collMod", mongoTemplate.getCollectionName(Cart.class))
+                .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+            logger.info("Cart change feed enabled");
+        } catch (DataAccessException | MongoCommandException e) {
+            enabled = false;
+            logger.warn("Cart change feed disabled, pre-images could not be enabled: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * @param resumeToken token of the last event the consumer processed, or {@code null} to
+     *                    continue from its last confirmed position
+     * @param reset       drop the stored position and start from the current end of the stream
+     */
+    public Batch poll(String consumer, String resumeToken, Integer limit, Long waitMillis, boolean reset) {
+        if (!enabled) {
+            throw new IllegalStateException("Cart change feed is not enabled");
+        }
+        
+        if (consumer == null || !CONSUMER_NAME.matcher(consumer).matches()) {
+            throw new InvalidArgumentException("Invalid consumer name: " + consumer);
+        }
+        
+        int batchLimit = limit != null && limit > 0 ? Math.min(limit, maxBatchSize) : maxBatchSize;
+        long wait = waitMillis != null && waitMillis >= 0 ? Math.min(waitMillis, maxWaitMillis) : maxWaitMillis;
+        
+        if (reset) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(consumer)), CartChangeFeedOffset.class);
+        } else if (resumeToken != null) {
+            commit(consumer, resumeToken);
+        }
+        
+        CartChangeFeedOffset offset = reset ? null : mongoTemplate.findById(consumer, CartChangeFeedOffset.class);
+        
+        ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Cart.class))
+            .watch(List.of(Aggregates.match(Filters.in("operationType", "insert", "update", "replace"))))
+            .fullDocument(FullDocument.WHEN_AVAILABLE)
+            .fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE)
+            .batchSize(batchLimit)
+            .maxAwaitTime(Math.min(wait, MAX_AWAIT_MILLIS), TimeUnit.MILLISECONDS);
+        if (offset != null) {
+            stream = stream.resumeAfter(token(offset.getResumeToken()));
+        }
+        
+        List<CartChangeEventDto> events = new ArrayList<>();
+        String position;
+        long deadline = System.currentTimeMillis() + wait;
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            if (offset == null) {
+                // First poll: pin the starting point now, so nothing between polls is missed
+                commit(consumer, tokenValue(cursor.getResumeToken()));
+            }
+            
+            while (events.size() < batchLimit) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change == null) {
+                    if (!events.isEmpty() || System.currentTimeMillis() >= deadline) {
+                        break;
+                    }
+                    continue;
+                }
+                events.addAll(toEvents(change));
+            }
+            position = tokenValue(cursor.getResumeToken());
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                throw new InvalidArgumentException("Position of consumer " + consumer
+                    + " is no longer in the oplog; poll again with reset=true");
+            }
+            throw e;
+        }
+        
+        meterRegistry.counter("cart.change-feed.events", "consumer", consumer).increment(events.size());
+        return new Batch(events, position);
+    }
+    
+    private void commit(String consumer, String resumeToken) {
+        if (resumeToken == null) {
+            return;
+        }
+        mongoTemplate.save(new CartChangeFeedOffset(consumer, resumeToken, new Date()));
+    }
+    
+    private List<CartChangeEventDto> toEvents(ChangeStreamDocument<Document> change) {
+        Document after = change.getFullDocument();
+        Document before = change.getFullDocumentBeforeChange();
+        boolean inserted = "insert".equals(change.getOperationTypeString());
+        
+        if (after == null || (before == null && !inserted)) {
+            meterRegistry.counter("cart.change-feed.missing-images").increment();
+            return List.of();
+        }
+        
+        Map<Long, Document> previous = lines(before);
+        Map<Long, Document> current = lines(after);
+        String token = tokenValue(change.getResumeToken());
+        Date occurredAt = change.getClusterTime() != null
+            ? new Date(change.getClusterTime().getTime() * 1000L)
+            : new Date();
+        
+        List<CartChangeEventDto> events = new ArrayList<>();
+        for (Map.Entry<Long, Document> line : current.entrySet()) {
+            Document old = previous.get(line.getKey());
+            Integer quantity = line.getValue().getInteger("quantity");
+            if (old == null) {
+                events.add(event(CartChangeEventDto.Type.ITEM_ADDED, after, line.getValue(), quantity, null, occurredAt, token));
+            } else if (!Objects.equals(old.getInteger("quantity"), quantity)) {
+                events.add(event(CartChangeEventDto.Type.QUANTITY_CHANGED, after, line.getValue(), quantity,
+                    old.getInteger("quantity"), occurredAt, token));
+            }
+        }
+        for (Map.Entry<Long, Document> line : previous.entrySet()) {
+            if (!current.containsKey(line.getKey())) {
+                events.add(event(CartChangeEventDto.Type.ITEM_REMOVED, after, line.getValue(), null,
+                    line.getValue().getInteger("quantity"), occurredAt, token));
+            }
+        }
+        return events;
+    }
+    
+    private static CartChangeEventDto event(CartChangeEventDto.Type type, Document cart, Document line, Integer quantity,
+                                            Integer previousQuantity, Date occurredAt, String token) {
+        Object price = line.get("price");
+        return new CartChangeEventDto(type, String.valueOf(cart.get("_id")), cart.getString("userEmail"),
+            Boolean.TRUE.equals(cart.getBoolean("guest")), ((Number) line.get("productId")).longValue(), quantity,
+            previousQuantity, price instanceof Decimal128 decimal ? decimal.bigDecimalValue() : null, occurredAt, token);
+    }
+    
+    private static Map<Long, Document> lines(Document cart) {
+        Map<Long, Document> lines = new LinkedHashMap<>();
+        if (cart == null) {
+            return lines;
+        }
+        
+        List<Document> items = cart.getList("items", Document.class);
+        if (items != null) {
+            for (Document item : items) {
+                lines.put(((Number) item.get("productId")).longValue(), item);
+            }
+        }
+        return lines;
+    }
+    
+    private static BsonDocument token(String value) {
+        return new BsonDocument("_data", new BsonString(value));
+    }
+    
+    private static String tokenValue(BsonDocument token) {
+        return token != null && token.containsKey("_data") ? token.getString("_data").getValue() : null;
+    }
+    
+    /**
+     * Events from one poll plus the stream position after them, which moves forward even when
+     * the changes read produced no line-level events.
+     */
+    public static final class Batch {
+        
+        private final List<CartChangeEventDto> events;
+        private final String resumeToken;
+        
+        private Batch(List<CartChangeEventDto> events, String resumeToken) {
+            this.events = events;
+            this.resumeToken = resumeToken;
+        }
+        
+        public List<CartChangeEventDto> getEvents() {
+            return events;
+        }
+        
+        public String getResumeToken() {
+            return resumeToken;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.ecommerce.cart.service;
+
+import com.example.ecommerce.cart.dto.CartItemChangeDto;
+import com.example.ecommerce.cart.dto.ProductPriceDto;
+import com.example.ecommerce.cart.model.Cart;
+import com.example.ecommerce.cart.model.CartItem;
+import com.example.ecommerce.cart.model.CartMutation;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compares cart lines with the current catalog. Only lines that have not been checked within
+ * {@code cart.price-check.stale-after-ms} are looked up, all of them in one batched catalog
+ * call. The outcome is a list of {@link CartMutation#reprice} mutations (which also stamp
+ * the lines as checked) plus the changes a shopper should be told about.
+ *
+ * Revalidation is best effort: if product-service is unavailable the cart is served as it is.
+ */
+@Component
+@Profile("!reactive")
+public class CartPriceRevalidator {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CartPriceRevalidator.class);
+    
+    private final ProductCatalogClient productCatalogClient;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${cart.price-check.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${cart.price-check.stale-after-ms:600000}")
+    private long staleAfterMillis;
+    
+    @Autowired
+    public CartPriceRevalidator(ProductCatalogClient productCatalogClient, MeterRegistry meterRegistry) {
+        this.productCatalogClient = productCatalogClient;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    /**
+     * Returns {@code null} when no line is due for a check or the catalog could not be reached.
+     */
+    public Revalidation check(Cart cart) {
+        return check(cart, staleAfterMillis, false);
+    }
+    
+    /**
+     * Stricter check used before a cart is frozen for checkout: lines older than
+     * {@code maxAgeMillis} are looked up even when price checks are disabled for reads, and an
+     * unreachable catalog fails the call instead of being skipped.
+     */
+    public Revalidation checkForCheckout(Cart cart, long maxAgeMillis) {
+        return check(cart, maxAgeMillis, true);
+    }
+    
+    private Revalidation check(Cart cart, long maxAgeMillis, boolean required) {
+        if ((!enabled && !required) || cart.getItems().isEmpty()) {
+            return null;
+        }
+        
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+        List<CartItem> stale = new ArrayList<>();
+        for (CartItem item : cart.getItems()) {
+            if (item.getPriceCheckedAt() == null || item.getPriceCheckedAt().getTime() < cutoff) {
+                stale.add(item);
+            }
+        }
+        
+        if (stale.isEmpty()) {
+            return null;
+        }
+        
+        Map<Long, ProductPriceDto> products;
+        try {
+            products = productCatalogClient.getProducts(stale.stream().map(CartItem::getProductId).toList());
+        } catch (RuntimeException e) {
+            meterRegistry.counter("cart.price-check.failures").increment();
+            if (required) {
+                throw new IllegalStateException("Unable to verify cart prices against the product catalog", e);
+            }
+            logger.warn("Skipping cart price revalidation for user: {}, {}", cart.getUserEmail(), e.getMessage());
+            return null;
+        }
+        
+        Revalidation revalidation = new Revalidation();
+        for (CartItem item : stale) {
+            ProductPriceDto product = products.get(item.getProductId());
+            if (product == null) {
+                revalidation.changes.add(new CartItemChangeDto(item.getProductId(), CartItemChangeDto.ChangeType.UNAVAILABLE,
+                    item.getProductName(), null, item.getPrice(), null));
+                continue;
+            }
+            
+            if (item.getPrice().compareTo(product.getPrice()) != 0) {
+                revalidation.changes.add(new CartItemChangeDto(item.getProductId(), CartItemChangeDto.ChangeType.PRICE_CHANGED,
+                    item.getProductName(), product.getName(), item.getPrice(), product.getPrice()));
+            } else if (!Objects.equals(item.getProductName(), product.getName())) {
+                revalidation.changes.add(new CartItemChangeDto(item.getProductId(), CartItemChangeDto.ChangeType.NAME_CHANGED,
+                    item.getProductName(), product.getName(), item.getPrice(), product.getPrice()));
+            }
+            revalidation.mutations.add(CartMutation.reprice(item.getProductId(), product.getName(), product.getPrice()));
+        }
+        
+        meterRegistry.counter("cart.price-check.lines").increment(stale.size());
+        meterRegistry.counter("cart.price-check.changes").increment(revalidation.changes.size());
+        return revalidation;
+    }
+    
+    public static final class Revalidation {
+        
+        private final List<CartMutation> mutations = new ArrayList<>();
+        private final List<CartItemChangeDto> changes = new ArrayList<>();
+        
+        public List<CartMutation> getMutations() {
+            return mutations;
+        }
+        
+        public List<CartItemChangeDto> getChanges() {
+            return changes;
+        }
+    }
+}
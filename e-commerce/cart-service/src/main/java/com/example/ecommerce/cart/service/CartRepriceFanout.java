@@ -0,0 +1,162 @@
+package com.example.ecommerce.cart.service;
+
+import com.example.ecommerce.cart.dto.ProductPriceDto;
+import com.example.ecommerce.cart.model.Cart;
+import com.example.ecommerce.cart.repository.CartUpdates;
+import com.example.ecommerce.common.exception.InvalidArgumentException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes a new catalog price into every cart holding the product.
+ *
+ * A notification only names the product. The price and name are always re-read from
+ * product-service before anything is written, so a caller can trigger a fan-out but never
+ * choose the price it applies.
+ *
+ * Carts are found through the {@code items.productId, _id} index and walked in {@code _id}
+ * order, one batch at a time, so a product sitting in hundreds of thousands of carts is never
+ * a collection scan or one giant update. Each batch is a single unordered bulk write of
+ * per-cart pipeline updates, followed by a short pause to leave room for shopper traffic.
+ *
+ * Updates only match lines that still carry a different price, so a fan-out can be retried or
+ * overtaken by a newer one safely. Fan-outs run one at a time, in the order they were received.
+ */
+@Component
+@Profile("!reactive")
+public class CartRepriceFanout {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CartRepriceFanout.class);
+    
+    private final MongoTemplate mongoTemplate;
+    private final CartWriteBehindCache writeBehindCache;
+    private final ProductCatalogClient productCatalogClient;
+    private final MeterRegistry meterRegistry;
+    
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    
+    @Value("${cart.reprice.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${cart.reprice.batch-pause-ms:50}")
+    private long batchPauseMillis;
+    
+    @Autowired
+    public CartRepriceFanout(MongoTemplate mongoTemplate, CartWriteBehindCache writeBehindCache,
+                             ProductCatalogClient productCatalogClient, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.writeBehindCache = writeBehindCache;
+        this.productCatalogClient = productCatalogClient;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    /**
+     * Queues a fan-out for the product; returns before product-service is asked or any cart is
+     * touched.
+     */
+    public void submit(Long productId) {
+        if (productId == null || productId <= 0) {
+            throw new InvalidArgumentException("Invalid product ID: " + productId);
+        }
+        
+        executor.execute(() -> {
+            try {
+                ProductPriceDto product = productCatalogClient.refresh(productId);
+                if (product == null || product.getPrice() == null || product.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
+                    logger.warn("Skipping cart price fan-out for productId: {}, no valid catalog price", productId);
+                    return;
+                }
+                reprice(product);
+            } catch (RuntimeException e) {
+                meterRegistry.counter("cart.reprice.failures").increment();
+                logger.error("Cart price fan-out failed for productId: {}", productId, e);
+            }
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private void reprice(ProductPriceDto product) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Criteria holding = CartUpdates.holdingLineNotPricedAt(product.getId(), product.getPrice());
+        
+        long updated = 0;
+        int batches = 0;
+        String lastId = null;
+        while (true) {
+            Query page = Query.query(lastId == null ? holding : new Criteria().andOperator(holding, Criteria.where("_id").gt(lastId)))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+            page.fields().include("_id");
+            
+            List<String> ids = mongoTemplate.find(page, Cart.class).stream()
+                .map(Cart::getId)
+                .toList();
+            if (ids.isEmpty()) {
+                break;
+            }
+            
+            updated += repriceBatch(ids, product);
+            batches++;
+            lastId = ids.get(ids.size() - 1);
+            if (ids.size() < batchSize) {
+                break;
+            }
+            pause();
+            if (Thread.currentThread().isInterrupted()) {
+                logger.warn("Cart price fan-out interrupted for productId: {} after {} carts", product.getId(), updated);
+                break;
+            }
+        }
+        
+        writeBehindCache.evictContaining(product.getId());
+        sample.stop(meterRegistry.timer("cart.reprice.duration"));
+        meterRegistry.counter("cart.reprice.carts").increment(updated);
+        logger.info("Repriced productId: {} in {} carts, batches: {}", product.getId(), updated, batches);
+    }
+    
+    private long repriceBatch(List<String> ids, ProductPriceDto product) {
+        Date checkedAt = new Date();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Cart.class);
+        for (String id : ids) {
+            // Re-check the line under the write, in case the cart changed since the page was read
+            Query cart = Query.query(Criteria.where("_id").is(id)
+                .andOperator(CartUpdates.holdingLineNotPricedAt(product.getId(), product.getPrice())));
+            bulk.updateOne(cart, CartUpdates.repriceLine(product.getId(), product.getName(), product.getPrice(), checkedAt));
+        }
+        return bulk.execute().getModifiedCount();
+    }
+    
+    private void pause() {
+        if (batchPauseMillis <= 0) {
+            return;
+        }
+        
+        try {
+            Thread.sleep(batchPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,46 +1,175 @@
 package com.example.ecommerce.cart.service;
 
 import com.example.ecommerce.cart.dto.AddItemRequest;
+import com.example.ecommerce.cart.dto.BatchCartRequest;
 import com.example.ecommerce.cart.dto.CartDto;
+import com.example.ecommerce.cart.dto.CartItemChangeDto;
+import com.example.ecommerce.cart.dto.CartOperationRequest;
+import com.example.ecommerce.cart.dto.CartSnapshotDto;
+import com.example.ecommerce.cart.dto.CartSummaryDto;
 import com.example.ecommerce.cart.mapper.CartMapper;
 import com.example.ecommerce.cart.model.Cart;
 import com.example.ecommerce.cart.model.CartItem;
+import com.example.ecommerce.cart.model.CartMutation;
+import com.example.ecommerce.cart.model.CartSnapshot;
 import com.example.ecommerce.cart.repository.CartRepository;
+import com.example.ecommerce.cart.repository.CartSnapshotRepository;
 import com.example.ecommerce.common.exception.InvalidArgumentException;
 import com.example.ecommerce.common.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
 
 @Service
+@Profile("!reactive")
 public class CartService {
     
     private static final Logger logger = LoggerFactory.getLogger(CartService.class);
     
+    private static final Pattern GUEST_TOKEN = Pattern.compile("[A-Za-z0-9_-]{16,128}");
+    
     private final CartRepository cartRepository;
     private final CartMapper cartMapper;
+    private final CartWriteRetrier cartWriteRetrier;
+    private final CartWriteBehindCache writeBehindCache;
+    private final CartPriceRevalidator cartPriceRevalidator;
+    private final CartSnapshotRepository cartSnapshotRepository;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${cart.read.secondary-enabled:false}")
+    private boolean secondaryReads;
+    
+    @Value("${cart.batch.max-operations:100}")
+    private int maxBatchOperations;
+    
+    @Value("${cart.snapshot.ttl:1h}")
+    private Duration snapshotTtl;
+    
+    @Value("${cart.snapshot.max-price-age-ms:60000}")
+    private long snapshotMaxPriceAgeMillis;
     
     @Autowired
-    public CartService(CartRepository cartRepository, CartMapper cartMapper) {
+    public CartService(CartRepository cartRepository, CartMapper cartMapper, CartWriteRetrier cartWriteRetrier,
+                       CartWriteBehindCache writeBehindCache, CartPriceRevalidator cartPriceRevalidator,
+                       CartSnapshotRepository cartSnapshotRepository, MeterRegistry meterRegistry) {
         this.cartRepository = cartRepository;
         this.cartMapper = cartMapper;
+        this.cartWriteRetrier = cartWriteRetrier;
+        this.writeBehindCache = writeBehindCache;
+        this.cartPriceRevalidator = cartPriceRevalidator;
+        this.cartSnapshotRepository = cartSnapshotRepository;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    /**
+     * Picks the cart a request operates on: the signed-in user's cart when an email is given,
+     * otherwise the anonymous cart for the guest token.
+     */
+    public static String resolveCartOwner(String userEmail, String guestToken) {
+        if (StringUtils.hasText(userEmail)) {
+            return userEmail;
+        }
+        
+        if (StringUtils.hasText(guestToken)) {
+            return guestCartOwner(guestToken);
+        }
+        
+        throw new InvalidArgumentException("Either X-User-Email or X-Guest-Token header is required");
     }
     
     public CartDto getCartByUserEmail(String userEmail) {
+        return getCartByUserEmail(userEmail, null);
+    }
+    
+    /**
+     * @param consistencyToken cart version returned by the caller's latest write, if any; a
+     *                         secondary that has not caught up to it is bypassed for the primary
+     */
+    public CartDto getCartByUserEmail(String userEmail, Long consistencyToken) {
         if (logger.isDebugEnabled()) {
             logger.debug("Fetching cart for user: {}", userEmail);
         }
         
         validateUserEmail(userEmail);
         
-        Cart cart = cartRepository.findByUserEmail(userEmail)
-            .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + userEmail));
+        if (writeBehindCache.isEnabled()) {
+            Cart cached = writeBehindCache.read(userEmail, Cart::copy);
+            if (cached == null) {
+                throw new ResourceNotFoundException("Cart not found for user: " + userEmail);
+            }
+            
+            CartPriceRevalidator.Revalidation revalidation = cartPriceRevalidator.check(cached);
+            if (revalidation == null) {
+                return cartMapper.toDto(cached);
+            }
+            
+            CartDto cart = writeBehindCache.mutate(userEmail, revalidation.getMutations(), false, cartMapper::toDto);
+            cart.setChangedItems(revalidation.getChanges());
+            return cart;
+        }
         
-        return cartMapper.toDto(cart);
+        Cart cart = readCart(userEmail, consistencyToken, false);
+        if (cart == null) {
+            throw new ResourceNotFoundException("Cart not found for user: " + userEmail);
+        }
+        
+        CartPriceRevalidator.Revalidation revalidation = cartPriceRevalidator.check(cart);
+        if (revalidation == null) {
+            return cartMapper.toDto(cart);
+        }
+        
+        CartDto revalidated = cartMapper.toDto(saveRevalidation(cart, revalidation));
+        revalidated.setChangedItems(revalidation.getChanges());
+        return revalidated;
+    }
+    
+    private Cart saveRevalidation(Cart cart, CartPriceRevalidator.Revalidation revalidation) {
+        Cart repriced = cart.copy();
+        revalidation.getMutations().forEach(mutation -> mutation.applyTo(repriced));
+        
+        try {
+            return cartRepository.save(repriced);
+        } catch (OptimisticLockingFailureException e) {
+            // Someone wrote the cart while we were checking; serve the refreshed prices and recheck on the next read
+            logger.debug("Cart changed during price revalidation for user: {}", cart.getUserEmail());
+            repriced.setVersion(cart.getVersion());
+            return repriced;
+        }
+    }
+    
+    /**
+     * Item count and total for badges and headers. Reads a projection without the item array,
+     * and returns an empty summary rather than failing when the user has no cart yet.
+     */
+    public CartSummaryDto getCartSummary(String userEmail) {
+        return getCartSummary(userEmail, null);
+    }
+    
+    public CartSummaryDto getCartSummary(String userEmail, Long consistencyToken) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching cart summary for user: {}", userEmail);
+        }
+        
+        validateUserEmail(userEmail);
+        
+        CartSummaryDto summary = writeBehindCache.isEnabled()
+            ? writeBehindCache.read(userEmail, cartMapper::toSummaryDto)
+            : cartMapper.toSummaryDto(readCart(userEmail, consistencyToken, true));
+        
+        return summary != null ? summary : new CartSummaryDto();
     }
     
     public CartDto getOrCreateCart(String userEmail) {
@@ -50,12 +179,12 @@ public class CartService {
         
         validateUserEmail(userEmail);
         
-        Cart cart = cartRepository.findByUserEmail(userEmail)
-            .orElseGet(() -> {
-                Cart newCart = new Cart();
-                newCart.setUserEmail(userEmail);
-                return cartRepository.save(newCart);
-            });
+        if (writeBehindCache.isEnabled()) {
+            return writeBehindCache.mutate(userEmail, List.of(), true, cartMapper::toDto);
+        }
+        
+        // Two first requests can race on the unique userEmail index; the retry finds the winner's cart
+        Cart cart = cartWriteRetrier.execute("getOrCreate", () -> cartRepository.findOrCreate(userEmail));
         
         return cartMapper.toDto(cart);
     }
@@ -68,35 +197,30 @@ public class CartService {
         validateUserEmail(userEmail);
         validateAddItemRequest(request);
         
-        Cart cart = cartRepository.findByUserEmail(userEmail)
-            .orElseGet(() -> {
-                Cart newCart = new Cart();
-                newCart.setUserEmail(userEmail);
-                return newCart;
-            });
-        
         CartItem newItem = new CartItem();
         newItem.setProductId(request.getProductId());
         newItem.setProductName(request.getProductName());
         newItem.setPrice(request.getPrice());
         newItem.setQuantity(request.getQuantity());
         
-        cart.getItems().stream()
-            .filter(i -> i.getProductId().equals(request.getProductId()))
-            .findFirst()
-            .ifPresentOrElse(
-                existing -> {
-                    logger.debug("Product already in cart, updating quantity");
-                    existing.setQuantity(existing.getQuantity() + request.getQuantity());
-                },
-                () -> {
-                    logger.debug("Adding new product to cart");
-                    cart.getItems().add(newItem);
-                }
-            );
+        if (writeBehindCache.isEnabled()) {
+            CartMutation mutation = CartMutation.add(newItem.getProductId(), newItem.getProductName(),
+                newItem.getPrice(), newItem.getQuantity());
+            return writeBehindCache.mutate(userEmail, List.of(mutation), true, cartMapper::toDto);
+        }
         
-        cart.setUpdatedAt(new Date());
-        Cart savedCart = cartRepository.save(cart);
+        Cart savedCart = cartWriteRetrier.execute("addItem", () -> {
+            Cart cart = cartRepository.incrementItemQuantity(userEmail, newItem.getProductId(),
+                newItem.getPrice(), newItem.getQuantity());
+            if (cart != null) {
+                logger.debug("Product already in cart, updating quantity");
+                return cart;
+            }
+            
+            // Loses with a duplicate key if a concurrent request created the cart first; retried above
+            logger.debug("Adding new product to cart");
+            return cartRepository.pushItem(userEmail, newItem);
+        });
         
         logger.info("Item added to cart successfully for user: {}", userEmail);
         return cartMapper.toDto(savedCart);
@@ -112,21 +236,16 @@ public class CartService {
         validateProductId(productId);
         validateQuantity(quantity);
         
-        Cart cart = cartRepository.findByUserEmail(userEmail)
-            .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + userEmail));
-        
-        cart.getItems().stream()
-            .filter(i -> i.getProductId().equals(productId))
-            .findFirst()
-            .ifPresentOrElse(
-                item -> item.setQuantity(quantity),
-                () -> {
-                    throw new ResourceNotFoundException("Product not found in cart: " + productId);
-                }
-            );
+        if (writeBehindCache.isEnabled()) {
+            return writeBehindCache.mutate(userEmail, List.of(CartMutation.update(productId, quantity)), false,
+                cartMapper::toDto);
+        }
         
-        cart.setUpdatedAt(new Date());
-        Cart savedCart = cartRepository.save(cart);
+        Cart savedCart = cartWriteRetrier.execute("updateItem",
+            () -> cartRepository.setItemQuantity(userEmail, productId, quantity));
+        if (savedCart == null) {
+            throw missingCartOrItem(userEmail, productId);
+        }
         
         logger.info("Cart item updated successfully for user: {}", userEmail);
         return cartMapper.toDto(savedCart);
@@ -140,58 +259,322 @@ public class CartService {
         validateUserEmail(userEmail);
         validateProductId(productId);
         
-        Cart cart = cartRepository.findByUserEmail(userEmail)
-            .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + userEmail));
-        
-        boolean removed = cart.getItems().removeIf(i -> i.getProductId().equals(productId));
-        
-        if (!removed) {
-            throw new ResourceNotFoundException("Product not found in cart: " + productId);
+        if (writeBehindCache.isEnabled()) {
+            return writeBehindCache.mutate(userEmail, List.of(CartMutation.remove(productId)), false,
+                cartMapper::toDto);
         }
         
-        cart.setUpdatedAt(new Date());
-        Cart savedCart = cartRepository.save(cart);
+        Cart savedCart = cartWriteRetrier.execute("removeItem", () -> cartRepository.pullItem(userEmail, productId));
+        if (savedCart == null) {
+            throw missingCartOrItem(userEmail, productId);
+        }
         
         logger.info("Item removed from cart successfully for user: {}", userEmail);
         return cartMapper.toDto(savedCart);
     }
     
-    public void clearCart(String userEmail) {
+    /**
+     * @return the cart version after clearing, for use as a consistency token
+     */
+    public Long clearCart(String userEmail) {
         if (logger.isDebugEnabled()) {
             logger.debug("Clearing cart for user: {}", userEmail);
         }
         
         validateUserEmail(userEmail);
         
-        Cart cart = cartRepository.findByUserEmail(userEmail)
-            .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + userEmail));
+        if (writeBehindCache.isEnabled()) {
+            Long version = writeBehindCache.mutate(userEmail, List.of(CartMutation.clear()), false, Cart::getVersion);
+            logger.info("Cart cleared successfully for user: {}", userEmail);
+            return version;
+        }
         
-        cart.getItems().clear();
-        cart.setUpdatedAt(new Date());
-        cartRepository.save(cart);
+        Cart cleared = cartRepository.clearItems(userEmail);
+        if (cleared == null) {
+            throw new ResourceNotFoundException("Cart not found for user: " + userEmail);
+        }
         
         logger.info("Cart cleared successfully for user: {}", userEmail);
+        return cleared.getVersion();
+    }
+    
+    /**
+     * Applies an ordered list of add/update/remove operations as one unit. The operations are
+     * replayed on the current document in memory and written back with a single versioned save,
+     * so either all of them land or none do; a concurrent write to the same cart just causes the
+     * batch to be replayed on the newer version.
+     */
+    public CartDto applyBatch(String userEmail, BatchCartRequest request) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Applying batch cart update for user: {}, operations: {}",
+                userEmail, request != null && request.getOperations() != null ? request.getOperations().size() : 0);
+        }
+        
+        validateUserEmail(userEmail);
+        List<CartMutation> mutations = toMutations(request);
+        boolean createIfMissing = mutations.stream()
+            .anyMatch(mutation -> mutation.getType() == CartMutation.Type.ADD);
+        
+        if (writeBehindCache.isEnabled()) {
+            return writeBehindCache.mutate(userEmail, mutations, createIfMissing, cartMapper::toDto);
+        }
+        
+        Cart savedCart = cartWriteRetrier.execute("batch", () -> {
+            Cart cart = cartRepository.findByUserEmail(userEmail).orElse(null);
+            if (cart == null) {
+                if (!createIfMissing) {
+                    throw new ResourceNotFoundException("Cart not found for user: " + userEmail);
+                }
+                cart = Cart.newCart(userEmail);
+            }
+            
+            for (CartMutation mutation : mutations) {
+                mutation.applyTo(cart);
+            }
+            return cartRepository.save(cart);
+        });
+        
+        logger.info("Batch cart update applied successfully for user: {}, operations: {}", userEmail, mutations.size());
+        return cartMapper.toDto(savedCart);
+    }
+    
+    /**
+     * Moves a guest cart into the user's cart at login. The guest lines are merged into the
+     * user cart first, with a single upsert that sums quantities per product and records the
+     * guest cart's id and version. The guest cart is deleted only after that, and only if it is
+     * still at the version that was merged. A retry after a failure at any point re-runs the
+     * merge as a no-op and finishes the delete, so no line is lost or counted twice. Lines added
+     * to the guest cart during the merge stay there for the next merge.
+     */
+    public CartDto mergeGuestCart(String userEmail, String guestToken) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Merging guest cart into cart for user: {}", userEmail);
+        }
+        
+        validateUserEmail(userEmail);
+        String guestOwner = guestCartOwner(guestToken);
+        
+        // Both documents are rewritten directly in Mongo, so cached copies must be saved and dropped first
+        writeBehindCache.evict(guestOwner);
+        writeBehindCache.evict(userEmail);
+        
+        Cart guestCart = cartRepository.findByUserEmail(guestOwner).orElse(null);
+        if (guestCart == null || guestCart.getItems().isEmpty()) {
+            logger.debug("No guest cart items to merge");
+            if (guestCart != null) {
+                cartRepository.removeCartAtVersion(guestOwner, guestCart.getVersion());
+            }
+            return getOrCreateCart(userEmail);
+        }
+        
+        String mergeMarker = guestCart.getId() + ":" + guestCart.getVersion();
+        Cart mergedCart = cartWriteRetrier.execute("merge",
+            () -> cartRepository.mergeItems(userEmail, guestCart.getItems(), mergeMarker));
+        
+        if (!cartRepository.removeCartAtVersion(guestOwner, guestCart.getVersion())) {
+            logger.warn("Guest cart changed during merge and was kept for a later merge: {}", guestOwner);
+        }
+        
+        logger.info("Guest cart merged successfully for user: {}, items: {}", userEmail, guestCart.getItems().size());
+        return cartMapper.toDto(mergedCart);
+    }
+    
+    /**
+     * Freezes the cart for checkout. Prices older than {@code cart.snapshot.max-price-age-ms} are
+     * checked against the catalog first, so the snapshot never carries client-supplied prices
+     * the catalog no longer agrees with; the changes are returned for the shopper to review.
+     * Freezing an unchanged cart again returns the existing snapshot.
+     */
+    public CartSnapshotDto freezeCart(String userEmail) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Freezing cart for checkout, user: {}", userEmail);
+        }
+        
+        validateUserEmail(userEmail);
+        if (Cart.isGuestOwner(userEmail)) {
+            throw new InvalidArgumentException("Guest carts must be merged into a user cart before checkout");
+        }
+        
+        Cart cart = writeBehindCache.isEnabled()
+            ? writeBehindCache.read(userEmail, Cart::copy)
+            : cartRepository.findByUserEmail(userEmail).orElse(null);
+        if (cart == null) {
+            throw new ResourceNotFoundException("Cart not found for user: " + userEmail);
+        }
+        
+        if (cart.getItems().isEmpty()) {
+            throw new InvalidArgumentException("Cannot check out an empty cart");
+        }
+        
+        List<CartItemChangeDto> changes = new ArrayList<>();
+        CartPriceRevalidator.Revalidation revalidation = cartPriceRevalidator.checkForCheckout(cart, snapshotMaxPriceAgeMillis);
+        if (revalidation != null) {
+            for (CartItemChangeDto change : revalidation.getChanges()) {
+                if (change.getType() == CartItemChangeDto.ChangeType.UNAVAILABLE) {
+                    throw new InvalidArgumentException("Product is no longer available: " + change.getProductId());
+                }
+            }
+            
+            cart = writeBehindCache.isEnabled()
+                ? writeBehindCache.mutate(userEmail, revalidation.getMutations(), false, Cart::copy)
+                : cartWriteRetrier.execute("freeze", () -> saveRepriced(userEmail, revalidation));
+            changes = revalidation.getChanges();
+        }
+        
+        Date now = new Date();
+        CartSnapshot snapshot = CartSnapshot.of(cart, now, new Date(now.getTime() + snapshotTtl.toMillis()));
+        try {
+            snapshot = cartSnapshotRepository.insert(snapshot);
+        } catch (DuplicateKeyException e) {
+            // Same owner, version and lines were frozen before; hand back that snapshot
+            snapshot = cartSnapshotRepository.findById(snapshot.getId()).orElse(snapshot);
+        }
+        
+        logger.info("Cart frozen for checkout, user: {}, snapshot: {}", userEmail, snapshot.getId());
+        
+        CartSnapshotDto dto = cartMapper.toSnapshotDto(snapshot);
+        dto.setChangedItems(changes);
+        return dto;
+    }
+    
+    public CartSnapshotDto getCartSnapshot(String userEmail, String snapshotId) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching cart snapshot: {} for user: {}", snapshotId, userEmail);
+        }
+        
+        validateUserEmail(userEmail);
+        if (!StringUtils.hasText(snapshotId)) {
+            throw new InvalidArgumentException("Snapshot ID cannot be null or empty");
+        }
+        
+        // The TTL monitor runs about once a minute, so expiry is also checked here
+        CartSnapshot snapshot = cartSnapshotRepository.findById(snapshotId)
+            .filter(found -> found.getUserEmail().equals(userEmail))
+            .filter(found -> found.getExpiresAt().after(new Date()))
+            .orElseThrow(() -> new ResourceNotFoundException("Cart snapshot not found: " + snapshotId));
+        
+        if (!snapshot.isIntact()) {
+            logger.error("Cart snapshot content does not match its hash: {}", snapshotId);
+            throw new IllegalStateException("Cart snapshot failed integrity check: " + snapshotId);
+        }
+        
+        return cartMapper.toSnapshotDto(snapshot);
+    }
+    
+    private Cart saveRepriced(String userEmail, CartPriceRevalidator.Revalidation revalidation) {
+        // Re-read on every attempt, so a retry reprices the version that beat us
+        Cart current = cartRepository.findByUserEmail(userEmail)
+            .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user: " + userEmail));
+        for (CartMutation mutation : revalidation.getMutations()) {
+            try {
+                mutation.applyTo(current);
+            } catch (ResourceNotFoundException e) {
+                logger.debug("Line removed while freezing cart for user: {}, {}", userEmail, e.getMessage());
+            }
+        }
+        return cartRepository.save(current);
+    }
+    
+    private static String guestCartOwner(String guestToken) {
+        if (guestToken == null || !GUEST_TOKEN.matcher(guestToken).matches()) {
+            throw new InvalidArgumentException("Invalid guest token");
+        }
+        return Cart.GUEST_PREFIX + guestToken;
+    }
+    
+    private List<CartMutation> toMutations(BatchCartRequest request) {
+        if (request == null || request.getOperations() == null || request.getOperations().isEmpty()) {
+            throw new InvalidArgumentException("Batch request must contain at least one operation");
+        }
+        
+        if (request.getOperations().size() > maxBatchOperations) {
+            throw new InvalidArgumentException("Batch request cannot contain more than " + maxBatchOperations + " operations");
+        }
+        
+        List<CartMutation> mutations = new ArrayList<>(request.getOperations().size());
+        for (CartOperationRequest operation : request.getOperations()) {
+            if (operation == null || operation.getType() == null) {
+                throw new InvalidArgumentException("Operation type cannot be null");
+            }
+            
+            switch (operation.getType()) {
+                case ADD:
+                    validateAddItemRequest(new AddItemRequest(operation.getProductId(), operation.getProductName(),
+                        operation.getPrice(), operation.getQuantity()));
+                    mutations.add(CartMutation.add(operation.getProductId(), operation.getProductName(),
+                        operation.getPrice(), operation.getQuantity()));
+                    break;
+                case UPDATE:
+                    validateProductId(operation.getProductId());
+                    validateQuantity(operation.getQuantity());
+                    mutations.add(CartMutation.update(operation.getProductId(), operation.getQuantity()));
+                    break;
+                case REMOVE:
+                    validateProductId(operation.getProductId());
+                    mutations.add(CartMutation.remove(operation.getProductId()));
+                    break;
+                default:
+                    throw new InvalidArgumentException("Unsupported batch operation: " + operation.getType());
+            }
+        }
+        return mutations;
+    }
+    
+    /**
+     * Reads from a secondary when enabled and it has caught up with the caller's last write,
+     * otherwise from the primary. Without a token any secondary copy is acceptable.
+     */
+    private Cart readCart(String userEmail, Long consistencyToken, boolean summaryOnly) {
+        if (secondaryReads) {
+            Cart cart = summaryOnly
+                ? cartRepository.findSummaryOnSecondary(userEmail)
+                : cartRepository.findOnSecondary(userEmail);
+            
+            boolean caughtUp = consistencyToken == null
+                || (cart != null && cart.getVersion() != null && cart.getVersion() >= consistencyToken);
+            if (caughtUp) {
+                meterRegistry.counter("cart.read.secondary").increment();
+                return cart;
+            }
+            
+            meterRegistry.counter("cart.read.primary-fallbacks").increment();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Secondary behind consistency token {} for user: {}, reading primary", consistencyToken, userEmail);
+            }
+        }
+        
+        return summaryOnly
+            ? cartRepository.findSummary(userEmail)
+            : cartRepository.findByUserEmail(userEmail).orElse(null);
+    }
+    
+    private ResourceNotFoundException missingCartOrItem(String userEmail, Long productId) {
+        // Only reached on the failure path, so the extra lookup does not cost the happy path a round trip
+        if (!cartRepository.existsByUserEmail(userEmail)) {
+            return new ResourceNotFoundException("Cart not found for user: " + userEmail);
+        }
+        return new ResourceNotFoundException("Product not found in cart: " + productId);
     }
     
-    private void validateUserEmail(String userEmail) {
+    static void validateUserEmail(String userEmail) {
         if (!StringUtils.hasText(userEmail)) {
             throw new InvalidArgumentException("User email cannot be null or empty");
         }
     }
     
-    private void validateProductId(Long productId) {
+    static void validateProductId(Long productId) {
         if (productId == null || productId <= 0) {
             throw new InvalidArgumentException("Invalid product ID: " + productId);
         }
     }
     
-    private void validateQuantity(Integer quantity) {
+    static void validateQuantity(Integer quantity) {
         if (quantity == null || quantity <= 0) {
             throw new InvalidArgumentException("Quantity must be greater than 0");
         }
     }
     
-    private void validateAddItemRequest(AddItemRequest request) {
+    static void validateAddItemRequest(AddItemRequest request) {
         if (request == null) {
             throw new InvalidArgumentException("Add item request cannot be null");
         }
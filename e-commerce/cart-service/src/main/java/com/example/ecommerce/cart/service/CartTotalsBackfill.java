@@ -0,0 +1,76 @@
+package com.example.ecommerce.cart.service;
+
+import com.example.ecommerce.cart.model.Cart;
+import com.example.ecommerce.cart.repository.CartRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Adds stored totals to carts written before {@code itemCount}, {@code total} and line
+ * subtotals were persisted. Re-saving also rewrites their prices as Decimal128, which the
+ * repository's update pipelines need for arithmetic. Runs once per startup and is a no-op
+ * when every cart already has totals.
+ */
+@Component
+public class CartTotalsBackfill {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CartTotalsBackfill.class);
+    
+    private final MongoTemplate mongoTemplate;
+    private final CartRepository cartRepository;
+    
+    @Value("${cart.totals-backfill.batch-size:500}")
+    private int batchSize;
+    
+    @Autowired
+    public CartTotalsBackfill(MongoTemplate mongoTemplate, CartRepository cartRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.cartRepository = cartRepository;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Query query = Query.query(Criteria.where("itemCount").exists(false)).limit(batchSize);
+        
+        int updated = 0;
+        while (true) {
+            List<Cart> carts = mongoTemplate.find(query, Cart.class);
+            if (carts.isEmpty()) {
+                break;
+            }
+            
+            int saved = 0;
+            for (Cart cart : carts) {
+                cart.recalculateTotals();
+                try {
+                    cartRepository.save(cart);
+                    saved++;
+                } catch (OptimisticLockingFailureException e) {
+                    // Changed while we were reading; the next pass picks up the fresh version
+                    logger.debug("Cart changed during totals backfill, retrying later: {}", cart.getUserEmail());
+                }
+            }
+            
+            updated += saved;
+            if (saved == 0) {
+                logger.warn("Cart totals backfill made no progress, remaining carts will be retried on next startup");
+                break;
+            }
+        }
+        
+        if (updated > 0) {
+            logger.info("Backfilled stored totals for {} carts", updated);
+        }
+    }
+}
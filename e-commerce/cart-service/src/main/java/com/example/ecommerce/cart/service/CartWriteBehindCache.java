@@ -0,0 +1,385 @@
+package com.example.ecommerce.cart.service;
+
+import com.example.ecommerce.cart.model.Cart;
+import com.example.ecommerce.cart.model.CartMutation;
+import com.example.ecommerce.cart.repository.CartRepository;
+import com.example.ecommerce.common.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Optional write-behind tier for active carts.
+ *
+ * Carts are kept in a bounded, access-ordered map keyed by user email. Reads are served from
+ * memory and mutations are applied to the in-memory cart and queued, so a burst of changes to
+ * one cart turns into a single versioned save per flush interval. Entries are flushed when they
+ * are evicted and when the service shuts down.
+ *
+ * The queued mutations are kept until the save succeeds. If the save loses a version race
+ * (another instance wrote the same cart), the document is reloaded and the queue is replayed
+ * on top of it, so concurrent writers never overwrite each other's lines. Carts written by
+ * other instances are only picked up on the next load, so this tier assumes requests for a
+ * given cart are routed to one instance.
+ *
+ * The map never grows past {@code max-entries}. When it is full and its oldest cart cannot be
+ * saved, new carts are refused rather than cached, so an outage turns into errors instead of
+ * unbounded memory.
+ *
+ * Disabled by default; when disabled, {@link CartService} talks to Mongo directly.
+ */
+@Component
+@Profile("!reactive")
+public class CartWriteBehindCache {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CartWriteBehindCache.class);
+    
+    private final CartRepository cartRepository;
+    private final CartWriteRetrier cartWriteRetrier;
+    private final MeterRegistry meterRegistry;
+    
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    
+    @Value("${cart.write-behind.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${cart.write-behind.max-entries:10000}")
+    private int maxEntries;
+    
+    @Value("${cart.write-behind.max-pending-mutations:50}")
+    private int maxPendingMutations;
+    
+    @Value("${cart.write-behind.sync-operations:CLEAR}")
+    private Set<CartMutation.Type> syncOperations;
+    
+    @Autowired
+    public CartWriteBehindCache(CartRepository cartRepository, CartWriteRetrier cartWriteRetrier,
+                                MeterRegistry meterRegistry) {
+        this.cartRepository = cartRepository;
+        this.cartWriteRetrier = cartWriteRetrier;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    @PostConstruct
+    void registerGauges() {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("cart.write-behind.entries", this, cache -> cache.size())
+            .register(meterRegistry);
+        Gauge.builder("cart.write-behind.dirty", this, cache -> cache.dirtyCount())
+            .register(meterRegistry);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Maps the cached cart while holding its lock, or returns {@code null} when the user has no cart.
+     */
+    public <T> T read(String userEmail, Function<Cart, T> reader) {
+        while (true) {
+            Entry entry = entryFor(userEmail);
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                load(userEmail, entry);
+                return entry.cart != null ? reader.apply(entry.cart) : null;
+            }
+        }
+    }
+    
+    /**
+     * Applies the mutations to the cached cart and queues them for the next flush. The batch
+     * is applied to a copy first, so a mutation that fails leaves the cart untouched. When the
+     * batch forces a flush and the save fails, the batch is taken back out before the error is
+     * rethrown, so the cache never shows a change the caller was told failed.
+     *
+     * @param createIfMissing start an empty cart when the user has none, instead of failing
+     */
+    public <T> T mutate(String userEmail, List<CartMutation> mutations, boolean createIfMissing,
+                        Function<Cart, T> reader) {
+        while (true) {
+            Entry entry = entryFor(userEmail);
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                load(userEmail, entry);
+                
+                boolean created = false;
+                Cart working;
+                if (entry.cart != null) {
+                    working = entry.cart.copy();
+                } else if (createIfMissing) {
+                    working = Cart.newCart(userEmail);
+                    created = true;
+                } else {
+                    throw new ResourceNotFoundException("Cart not found for user: " + userEmail);
+                }
+                
+                mutations.forEach(mutation -> mutation.applyTo(working));
+                
+                Cart previousCart = entry.cart;
+                int previousPending = entry.pending.size();
+                boolean previousDirty = entry.dirty;
+                
+                entry.cart = working;
+                entry.pending.addAll(mutations);
+                entry.dirty = entry.dirty || created || !mutations.isEmpty();
+                
+                if (entry.dirty && (entry.pending.size() >= maxPendingMutations || requiresSync(mutations))) {
+                    try {
+                        flush(userEmail, entry);
+                    } catch (RuntimeException e) {
+                        counter("cart.write-behind.flush.failures").increment();
+                        entry.cart = previousCart;
+                        entry.pending.subList(previousPending, entry.pending.size()).clear();
+                        entry.dirty = previousDirty;
+                        throw e;
+                    }
+                }
+                return reader.apply(entry.cart);
+            }
+        }
+    }
+    
+    /**
+     * Flushes and drops the cached copy of a cart, so the next access reloads it from Mongo.
+     * Used before operations that rewrite the document directly in the database.
+     */
+    public void evict(String userEmail) {
+        if (!enabled) {
+            return;
+        }
+        
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(userEmail);
+        }
+        if (entry != null) {
+            evict(userEmail, entry);
+        }
+    }
+    
+    /**
+     * Flushes and drops every cached cart holding the product, after its lines were rewritten
+     * in Mongo by a price fan-out.
+     */
+    public void evictContaining(Long productId) {
+        if (!enabled) {
+            return;
+        }
+        
+        List<Map.Entry<String, Entry>> snapshot;
+        synchronized (entries) {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+        
+        for (Map.Entry<String, Entry> cached : snapshot) {
+            Entry entry = cached.getValue();
+            boolean holdsProduct;
+            synchronized (entry) {
+                holdsProduct = entry.cart != null && entry.cart.findItem(productId) != null;
+            }
+            if (holdsProduct) {
+                evict(cached.getKey(), entry);
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-interval-ms:1000}")
+    public void flushDirty() {
+        if (!enabled) {
+            return;
+        }
+        
+        List<Map.Entry<String, Entry>> snapshot;
+        synchronized (entries) {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+        
+        for (Map.Entry<String, Entry> cached : snapshot) {
+            Entry entry = cached.getValue();
+            synchronized (entry) {
+                if (entry.dirty && !entry.evicted) {
+                    flushQuietly(cached.getKey(), entry);
+                }
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (!enabled) {
+            return;
+        }
+        
+        logger.info("Flushing write-behind cart cache before shutdown, dirty carts: {}", dirtyCount());
+        flushDirty();
+    }
+    
+    private Entry entryFor(String userEmail) {
+        while (true) {
+            Map.Entry<String, Entry> eldest;
+            synchronized (entries) {
+                Entry entry = entries.get(userEmail);
+                if (entry == null && entries.size() < maxEntries) {
+                    entry = new Entry();
+                    entries.put(userEmail, entry);
+                }
+                if (entry != null) {
+                    return entry;
+                }
+                eldest = entries.entrySet().iterator().next();
+            }
+            
+            // Make room before adding; an oldest cart that cannot be saved is kept, and the new one refused
+            if (!evict(eldest.getKey(), eldest.getValue())) {
+                counter("cart.write-behind.rejections").increment();
+                throw new IllegalStateException("Write-behind cart cache is full and its oldest cart could not be saved");
+            }
+        }
+    }
+    
+    /**
+     * Returns {@code false} if the entry holds unsaved changes that could not be flushed; it
+     * then stays cached.
+     */
+    private boolean evict(String userEmail, Entry entry) {
+        synchronized (entry) {
+            if (entry.evicted) {
+                return true;
+            }
+            // The entry stays visible until it is saved, so nobody reloads a cart whose changes are still in flight
+            if (entry.dirty && !flushQuietly(userEmail, entry)) {
+                return false;
+            }
+            entry.evicted = true;
+            synchronized (entries) {
+                entries.remove(userEmail, entry);
+            }
+        }
+        counter("cart.write-behind.evictions").increment();
+        return true;
+    }
+    
+    private void load(String userEmail, Entry entry) {
+        if (entry.loaded) {
+            return;
+        }
+        
+        entry.cart = cartRepository.findByUserEmail(userEmail).orElse(null);
+        entry.loaded = true;
+        counter("cart.write-behind.loads").increment();
+    }
+    
+    private boolean flushQuietly(String userEmail, Entry entry) {
+        try {
+            flush(userEmail, entry);
+            return true;
+        } catch (RuntimeException e) {
+            counter("cart.write-behind.flush.failures").increment();
+            logger.error("Failed to flush cart for user: {}, pending mutations: {}", userEmail, entry.pending.size(), e);
+            return false;
+        }
+    }
+    
+    private void flush(String userEmail, Entry entry) {
+        AtomicBoolean firstAttempt = new AtomicBoolean(true);
+        
+        Cart saved = cartWriteRetrier.execute("writeBehindFlush", () -> {
+            Cart candidate = firstAttempt.getAndSet(false) ? entry.cart : replay(userEmail, entry.pending);
+            return cartRepository.save(candidate);
+        });
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Flushed cart for user: {}, coalesced mutations: {}", userEmail, entry.pending.size());
+        }
+        counter("cart.write-behind.flushes").increment();
+        counter("cart.write-behind.coalesced").increment(entry.pending.size());
+        
+        entry.cart = saved;
+        entry.pending.clear();
+        entry.dirty = false;
+    }
+    
+    private Cart replay(String userEmail, List<CartMutation> pending) {
+        Cart current = cartRepository.findByUserEmail(userEmail).orElseGet(() -> Cart.newCart(userEmail));
+        
+        for (CartMutation mutation : pending) {
+            try {
+                mutation.applyTo(current);
+            } catch (ResourceNotFoundException e) {
+                // The line was removed by the competing writer; the change no longer applies
+                logger.warn("Dropping cart mutation on replay for user: {}, {}", userEmail, e.getMessage());
+            }
+        }
+        return current;
+    }
+    
+    private boolean requiresSync(List<CartMutation> mutations) {
+        for (CartMutation mutation : mutations) {
+            if (syncOperations.contains(mutation.getType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    private int dirtyCount() {
+        List<Entry> snapshot;
+        synchronized (entries) {
+            snapshot = new ArrayList<>(entries.values());
+        }
+        
+        int dirty = 0;
+        for (Entry entry : snapshot) {
+            if (entry.dirty) {
+                dirty++;
+            }
+        }
+        return dirty;
+    }
+    
+    private Counter counter(String name) {
+        return meterRegistry.counter(name);
+    }
+    
+    /**
+     * One cached cart. All fields are guarded by the entry's own monitor.
+     */
+    private static final class Entry {
+        
+        private Cart cart;
+        private boolean loaded;
+        private volatile boolean dirty;
+        private boolean evicted;
+        private final List<CartMutation> pending = new ArrayList<>();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.ecommerce.cart.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a cart write and retries it a bounded number of times when it loses a race on the same
+ * document: a version mismatch on a versioned save, or a duplicate key on a concurrent upsert.
+ * The write itself is re-executed, so each attempt re-reads current state instead of replaying
+ * a stale one. Conflicts, retries and exhausted attempts are exported as Micrometer counters
+ * tagged with the cart operation.
+ */
+@Component
+@Profile("!reactive")
+public class CartWriteRetrier {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CartWriteRetrier.class);
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${cart.concurrency.max-attempts:3}")
+    private int maxAttempts;
+    
+    @Value("${cart.concurrency.backoff-ms:10}")
+    private long backoffMillis;
+    
+    @Autowired
+    public CartWriteRetrier(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+    
+    public <T> T execute(String operation, Supplier<T> write) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write.get();
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                counter("cart.write.conflicts", operation).increment();
+                
+                if (attempt >= maxAttempts) {
+                    counter("cart.write.retry.exhausted", operation).increment();
+                    logger.warn("Cart write conflict not resolved after {} attempts, operation: {}", attempt, operation);
+                    throw e;
+                }
+                
+                counter("cart.write.retries", operation).increment();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Cart write conflict, retrying operation: {}, attempt: {}", operation, attempt);
+                }
+                backoff(attempt);
+            }
+        }
+    }
+    
+    private void backoff(int attempt) {
+        if (backoffMillis <= 0) {
+            return;
+        }
+        
+        // Jittered linear backoff so two contending writers do not retry in lockstep
+        long delay = ThreadLocalRandom.current().nextLong(backoffMillis * attempt + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private Counter counter(String name, String operation) {
+        return meterRegistry.counter(name, "operation", operation);
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.ecommerce.cart.service;
+
+import com.example.ecommerce.cart.dto.ProductPriceDto;
+import com.example.ecommerce.common.dto.UIBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Batched product lookups against product-service, fronted by a short-lived local cache.
+ *
+ * Misses are fetched through {@code GET /api/products/batch}, one request per chunk of ids;
+ * a cart larger than one chunk fetches its chunks in parallel on a small bounded pool, so the
+ * latency of a lookup is roughly one round trip regardless of how many lines are checked.
+ * Products that no longer exist are cached too, so a deleted product does not cause a
+ * request on every read.
+ *
+ * Every lookup is bounded: single requests by the RestTemplate timeouts, parallel chunks by
+ * {@code cart.price-check.timeout-ms} overall. A lookup that runs out of time throws, and
+ * callers fall back to the prices stored on the cart.
+ */
+@Component
+@Profile("!reactive")
+public class ProductCatalogClient {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogClient.class);
+    
+    /**
+     * Largest id list product-service accepts on {@code /api/products/batch}.
+     */
+    static final int MAX_BATCH_IDS = 100;
+    
+    private static final ParameterizedTypeReference<UIBean<List<ProductPriceDto>>> PRODUCT_LIST =
+        new ParameterizedTypeReference<>() {};
+    
+    private final RestTemplate restTemplate;
+    private final ExecutorService executor;
+    private final Map<Long, CachedProduct> cache = new ConcurrentHashMap<>();
+    
+    @Value("${services.product-service.url:http://product-service}")
+    private String productServiceUrl;
+    
+    @Value("${cart.price-check.cache-ttl-ms:30000}")
+    private long cacheTtlMillis;
+    
+    @Value("${cart.price-check.cache-max-entries:50000}")
+    private int cacheMaxEntries;
+    
+    @Value("${cart.price-check.batch-size:100}")
+    private int batchSize;
+    
+    @Value("${cart.price-check.timeout-ms:2500}")
+    private long timeoutMillis;
+    
+    @Autowired
+    public ProductCatalogClient(RestTemplate restTemplate, @Value("${cart.price-check.parallelism:4}") int parallelism) {
+        this.restTemplate = restTemplate;
+        this.executor = Executors.newFixedThreadPool(parallelism);
+    }
+    
+    @PostConstruct
+    void capBatchSize() {
+        if (batchSize > MAX_BATCH_IDS || batchSize <= 0) {
+            logger.warn("cart.price-check.batch-size {} is outside 1..{}; using {}", batchSize, MAX_BATCH_IDS, MAX_BATCH_IDS);
+            batchSize = MAX_BATCH_IDS;
+        }
+    }
+    
+    /**
+     * Returns the current catalog entry for each id that still exists. Ids of deleted products
+     * are absent from the result. Throws if product-service cannot be reached.
+     */
+    public Map<Long, ProductPriceDto> getProducts(Collection<Long> productIds) {
+        Map<Long, ProductPriceDto> result = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        
+        for (Long productId : productIds) {
+            CachedProduct cached = cache.get(productId);
+            if (cached != null && now - cached.fetchedAt <= cacheTtlMillis) {
+                if (cached.product != null) {
+                    result.put(productId, cached.product);
+                }
+            } else {
+                misses.add(productId);
+            }
+        }
+        
+        if (misses.isEmpty()) {
+            return result;
+        }
+        
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < misses.size(); from += batchSize) {
+            chunks.add(misses.subList(from, Math.min(from + batchSize, misses.size())));
+        }
+        
+        List<ProductPriceDto> fetched = new ArrayList<>();
+        if (chunks.size() == 1) {
+            fetched.addAll(fetch(chunks.get(0)));
+        } else {
+            List<CompletableFuture<List<ProductPriceDto>>> futures = new ArrayList<>(chunks.size());
+            for (List<Long> chunk : chunks) {
+                futures.add(CompletableFuture.supplyAsync(() -> fetch(chunk), executor));
+            }
+            fetched.addAll(awaitAll(futures));
+        }
+        
+        evictIfFull();
+        long fetchedAt = System.currentTimeMillis();
+        for (ProductPriceDto product : fetched) {
+            result.put(product.getId(), product);
+        }
+        for (Long productId : misses) {
+            cache.put(productId, new CachedProduct(result.get(productId), fetchedAt));
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Reads one product straight from product-service, bypassing the cache, and caches the
+     * answer. Returns {@code null} when the product no longer exists. Used after a price-change
+     * notification, so the price that gets applied is always the catalog's own.
+     */
+    public ProductPriceDto refresh(Long productId) {
+        ProductPriceDto product = fetch(List.of(productId)).stream()
+            .filter(candidate -> productId.equals(candidate.getId()))
+            .findFirst()
+            .orElse(null);
+        
+        evictIfFull();
+        cache.put(productId, new CachedProduct(product, System.currentTimeMillis()));
+        return product;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private List<ProductPriceDto> awaitAll(List<CompletableFuture<List<ProductPriceDto>>> futures) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Product lookup timed out after " + timeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Product lookup failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Product lookup interrupted", e);
+        }
+        
+        List<ProductPriceDto> fetched = new ArrayList<>();
+        futures.forEach(future -> fetched.addAll(future.join()));
+        return fetched;
+    }
+    
+    private List<ProductPriceDto> fetch(List<Long> productIds) {
+        String url = productServiceUrl + "/api/products/batch?ids="
+            + StringUtils.collectionToCommaDelimitedString(productIds);
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching {} products from product-service", productIds.size());
+        }
+        
+        ResponseEntity<UIBean<List<ProductPriceDto>>> response = restTemplate.exchange(url, HttpMethod.GET, null, PRODUCT_LIST);
+        UIBean<List<ProductPriceDto>> body = response.getBody();
+        if (body == null || !body.isSuccess() || body.getData() == null) {
+            throw new IllegalStateException("Product lookup failed: " + (body != null ? body.getMessage() : "empty response"));
+        }
+        return body.getData();
+    }
+    
+    private void evictIfFull() {
+        if (cache.size() < cacheMaxEntries) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(cached -> now - cached.fetchedAt > cacheTtlMillis);
+        if (cache.size() >= cacheMaxEntries) {
+            cache.clear();
+        }
+    }
+    
+    private static final class CachedProduct {
+        
+        private final ProductPriceDto product;
+        private final long fetchedAt;
+        
+        private CachedProduct(ProductPriceDto product, long fetchedAt) {
+            this.product = product;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.ecommerce.cart.service;
+
+import com.example.ecommerce.cart.dto.AddItemRequest;
+import com.example.ecommerce.cart.dto.CartDto;
+import com.example.ecommerce.cart.dto.CartSummaryDto;
+import com.example.ecommerce.cart.mapper.CartMapper;
+import com.example.ecommerce.cart.model.Cart;
+import com.example.ecommerce.cart.model.CartItem;
+import com.example.ecommerce.cart.repository.CartUpdates;
+import com.example.ecommerce.common.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.ecommerce.cart.repository.CartUpdates.returnNew;
+
+/**
+ * Non-blocking counterpart of {@link CartService} for the {@code reactive} profile. Every
+ * operation is one of the atomic updates in {@link CartUpdates}, issued through the reactive
+ * driver, so no request thread waits on Mongo.
+ *
+ * The number of operations in flight is capped; beyond the cap requests fail fast with 503
+ * instead of piling up behind the connection pool. The write-behind cache and read-time price
+ * revalidation are built on blocking clients and are not used here.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveCartService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCartService.class);
+    
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final CartMapper cartMapper;
+    private final MeterRegistry meterRegistry;
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    @Value("${cart.reactive.max-in-flight:512}")
+    private int maxInFlight;
+    
+    @Value("${cart.concurrency.max-attempts:3}")
+    private int maxAttempts;
+    
+    @Value("${cart.concurrency.backoff-ms:10}")
+    private long backoffMillis;
+    
+    @Autowired
+    public ReactiveCartService(ReactiveMongoTemplate reactiveMongoTemplate, CartMapper cartMapper,
+                               MeterRegistry meterRegistry) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.cartMapper = cartMapper;
+        this.meterRegistry = meterRegistry;
+        
+        Gauge.builder("cart.reactive.in-flight", inFlight, AtomicInteger::get)
+            .register(meterRegistry);
+    }
+    
+    public Mono<CartDto> getCartByUserEmail(String userEmail) {
+        return limited(Mono.defer(() -> {
+            CartService.validateUserEmail(userEmail);
+            
+            return reactiveMongoTemplate.findOne(CartUpdates.byOwner(userEmail), Cart.class)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Cart not found for user: " + userEmail)))
+                .map(cartMapper::toDto);
+        }));
+    }
+    
+    public Mono<CartSummaryDto> getCartSummary(String userEmail) {
+        return limited(Mono.defer(() -> {
+            CartService.validateUserEmail(userEmail);
+            
+            return reactiveMongoTemplate.findOne(CartUpdates.summary(userEmail), Cart.class)
+                .map(cartMapper::toSummaryDto)
+                .defaultIfEmpty(new CartSummaryDto());
+        }));
+    }
+    
+    public Mono<CartDto> getOrCreateCart(String userEmail) {
+        return limited(Mono.defer(() -> {
+            CartService.validateUserEmail(userEmail);
+            
+            // Two first requests can race on the unique userEmail index; the retry finds the winner's cart
+            return retryOnConflict("getOrCreate", Mono.defer(() -> reactiveMongoTemplate.findAndModify(
+                    CartUpdates.byOwner(userEmail), CartUpdates.createIfMissing(userEmail),
+                    returnNew().upsert(true), Cart.class)))
+                .map(cartMapper::toDto);
+        }));
+    }
+    
+    public Mono<CartDto> addItem(String userEmail, AddItemRequest request) {
+        return limited(Mono.defer(() -> {
+            CartService.validateUserEmail(userEmail);
+            CartService.validateAddItemRequest(request);
+            
+            CartItem newItem = new CartItem();
+            newItem.setProductId(request.getProductId());
+            newItem.setProductName(request.getProductName());
+            newItem.setPrice(request.getPrice());
+            newItem.setQuantity(request.getQuantity());
+            
+            Mono<Cart> write = Mono.defer(() -> reactiveMongoTemplate.findAndModify(
+                    CartUpdates.byOwnerWithLineAt(userEmail, newItem.getProductId(), newItem.getPrice()),
+                    CartUpdates.incrementLine(newItem.getPrice(), newItem.getQuantity()), returnNew(), Cart.class)
+                .switchIfEmpty(Mono.defer(() -> findLine(userEmail, newItem.getProductId()))
+                    .flatMap(line -> reactiveMongoTemplate.findAndModify(
+                        CartUpdates.byOwnerWithLineAt(userEmail, line.getProductId(), line.getPrice()),
+                        CartUpdates.incrementLine(line.getPrice(), newItem.getQuantity()), returnNew(), Cart.class)
+                        .switchIfEmpty(Mono.error(() -> lineChanged(line.getProductId())))))
+                .switchIfEmpty(Mono.defer(() -> reactiveMongoTemplate.findAndModify(
+                    CartUpdates.byOwnerWithoutLine(userEmail, newItem.getProductId()),
+                    CartUpdates.pushLine(userEmail, newItem), returnNew().upsert(true), Cart.class))));
+            
+            return retryOnConflict("addItem", write)
+                .doOnSuccess(cart -> logger.info("Item added to cart successfully for user: {}", userEmail))
+                .map(cartMapper::toDto);
+        }));
+    }
+    
+    public Mono<CartDto> updateItem(String userEmail, Long productId, Integer quantity) {
+        return limited(Mono.defer(() -> {
+            CartService.validateUserEmail(userEmail);
+            CartService.validateProductId(productId);
+            CartService.validateQuantity(quantity);
+            
+            Mono<Cart> write = findLine(userEmail, productId)
+                .flatMap(line -> reactiveMongoTemplate.findAndModify(CartUpdates.byOwnerWithLineAs(userEmail, line),
+                        CartUpdates.setLineQuantity(line, quantity), returnNew(), Cart.class)
+                    .switchIfEmpty(Mono.error(() -> lineChanged(productId))));
+            
+            return retryOnConflict("updateItem", write)
+                .switchIfEmpty(Mono.defer(() -> missingCartOrItem(userEmail, productId)))
+                .doOnSuccess(cart -> logger.info("Cart item updated successfully for user: {}", userEmail))
+                .map(cartMapper::toDto);
+        }));
+    }
+    
+    public Mono<CartDto> removeItem(String userEmail, Long productId) {
+        return limited(Mono.defer(() -> {
+            CartService.validateUserEmail(userEmail);
+            CartService.validateProductId(productId);
+            
+            Mono<Cart> write = findLine(userEmail, productId)
+                .flatMap(line -> reactiveMongoTemplate.findAndModify(CartUpdates.byOwnerWithLineAs(userEmail, line),
+                        CartUpdates.pullLine(line), returnNew(), Cart.class)
+                    .switchIfEmpty(Mono.error(() -> lineChanged(productId))));
+            
+            return retryOnConflict("removeItem", write)
+                .switchIfEmpty(Mono.defer(() -> missingCartOrItem(userEmail, productId)))
+                .doOnSuccess(cart -> logger.info("Item removed from cart successfully for user: {}", userEmail))
+                .map(cartMapper::toDto);
+        }));
+    }
+    
+    public Mono<Void> clearCart(String userEmail) {
+        return limited(Mono.defer(() -> {
+            CartService.validateUserEmail(userEmail);
+            
+            return reactiveMongoTemplate.updateFirst(CartUpdates.byOwner(userEmail), CartUpdates.clearLines(), Cart.class)
+                .flatMap(result -> {
+                    if (result.getMatchedCount() == 0) {
+                        return Mono.error(new ResourceNotFoundException("Cart not found for user: " + userEmail));
+                    }
+                    logger.info("Cart cleared successfully for user: {}", userEmail);
+                    return Mono.empty();
+                });
+        }));
+    }
+    
+    private <T> Mono<T> missingCartOrItem(String userEmail, Long productId) {
+        // Only reached on the failure path, so the extra lookup does not cost the happy path a round trip
+        return reactiveMongoTemplate.exists(CartUpdates.byOwner(userEmail), Cart.class)
+            .flatMap(exists -> Mono.error(exists
+                ? new ResourceNotFoundException("Product not found in cart: " + productId)
+                : new ResourceNotFoundException("Cart not found for user: " + userEmail)));
+    }
+    
+    /**
+     * Same policy as {@link CartWriteRetrier}, without parking a thread between attempts.
+     */
+    /**
+     * The product's line as currently stored, for a guarded positional update; empty when the
+     * cart has no line for it.
+     */
+    private Mono<CartItem> findLine(String userEmail, Long productId) {
+        return reactiveMongoTemplate.findOne(CartUpdates.lineOf(userEmail, productId), Cart.class)
+            .filter(cart -> !cart.getItems().isEmpty())
+            .map(cart -> cart.getItems().get(0));
+    }
+    
+    private static OptimisticLockingFailureException lineChanged(Long productId) {
+        return new OptimisticLockingFailureException("Cart line changed concurrently for product: " + productId);
+    }
+    
+    private <T> Mono<T> retryOnConflict(String operation, Mono<T> write) {
+        Retry retry = Retry.backoff(Math.max(0, maxAttempts - 1), Duration.ofMillis(Math.max(1, backoffMillis)))
+            .filter(e -> e instanceof OptimisticLockingFailureException || e instanceof DuplicateKeyException)
+            .doBeforeRetry(signal -> meterRegistry.counter("cart.write.retries", "operation", operation).increment())
+            .onRetryExhaustedThrow((spec, signal) -> {
+                meterRegistry.counter("cart.write.retry.exhausted", "operation", operation).increment();
+                logger.warn("Cart write conflict not resolved after {} attempts, operation: {}",
+                    signal.totalRetries() + 1, operation);
+                return signal.failure();
+            });
+        
+        return write.retryWhen(retry);
+    }
+    
+    private <T> Mono<T> limited(Mono<T> operation) {
+        return Mono.defer(() -> {
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                meterRegistry.counter("cart.reactive.rejected").increment();
+                return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Cart service is busy, retry shortly"));
+            }
+            return operation.doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+}
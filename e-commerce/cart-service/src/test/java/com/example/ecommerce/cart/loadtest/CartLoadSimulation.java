@@ -0,0 +1,77 @@
+package com.example.ecommerce.cart.loadtest;
+
+import static io.gatling.javaapi.core.CoreDsl.StringBody;
+import static io.gatling.javaapi.core.CoreDsl.constantUsersPerSec;
+import static io.gatling.javaapi.core.CoreDsl.global;
+import static io.gatling.javaapi.core.CoreDsl.jsonPath;
+import static io.gatling.javaapi.core.CoreDsl.scenario;
+import static io.gatling.javaapi.http.HttpDsl.http;
+import static io.gatling.javaapi.http.HttpDsl.status;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+
+/**
+ * Cart read/write mix for comparing the servlet (default) and {@code reactive} profiles. Each
+ * virtual user owns a fresh cart: add two lines, read the cart, change a quantity, read the
+ * summary. Arrivals are open-model, so a slower server shows up as latency and errors rather
+ * than as fewer requests.
+ *
+ * Run against one profile at a time, same Mongo and host:
+ * {@code mvn -pl cart-service gatling:test -DbaseUrl=http://localhost:8083 -Drate=200 -Dduration=60}
+ *
+ * {@code -Dmix=insert-read} drops the quantity change, for in-memory Mongo stand-ins that do
+ * not resolve the positional {@code $} operator from an {@code $elemMatch} query.
+ */
+public class CartLoadSimulation extends Simulation {
+    
+    private static final String BASE_URL = System.getProperty("baseUrl", "http://localhost:8083");
+    private static final double RATE = Double.parseDouble(System.getProperty("rate", "100"));
+    private static final long DURATION_SECONDS = Long.getLong("duration", 60L);
+    private static final boolean FULL_MIX = !"insert-read".equals(System.getProperty("mix", "full"));
+    
+    private static final String ADD_ITEM = "{\"productId\":#{productId},\"productName\":\"Product #{productId}\","
+            + "\"price\":19.99,\"quantity\":1}";
+    
+    private final Iterator<Map<String, Object>> users = Stream.generate(() -> Map.<String, Object>of(
+            "userEmail", "load-" + UUID.randomUUID() + "@example.com",
+            "productId", ThreadLocalRandom.current().nextInt(1, 500))).iterator();
+    
+    private final HttpProtocolBuilder httpProtocol = http
+            .baseUrl(BASE_URL)
+            .acceptHeader("application/json")
+            .contentTypeHeader("application/json")
+            .header("X-User-Email", "#{userEmail}");
+    
+    {
+        ScenarioBuilder cartSession = scenario("cart session")
+                .feed(users)
+                .exec(http("add item").post("/api/cart/items")
+                        .body(StringBody(ADD_ITEM))
+                        .check(status().is(200), jsonPath("$.success").is("true")))
+                .exec(http("add second item").post("/api/cart/items")
+                        .body(StringBody(ADD_ITEM.replace("#{productId}", "#{productId}0")))
+                        .check(status().is(200)))
+                .exec(http("get cart").get("/api/cart")
+                        .check(status().is(200)));
+        if (FULL_MIX) {
+            cartSession = cartSession.exec(http("update quantity").put("/api/cart/items/#{productId}")
+                    .body(StringBody("{\"quantity\":3}"))
+                    .check(status().is(200)));
+        }
+        cartSession = cartSession.exec(http("get summary").get("/api/cart/summary")
+                .check(status().in(200, 304)));
+        
+        setUp(cartSession.injectOpen(constantUsersPerSec(RATE).during(Duration.ofSeconds(DURATION_SECONDS))))
+                .protocols(httpProtocol)
+                .assertions(global().failedRequests().percent().lt(1.0));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.ecommerce.cart.model;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * In-memory cart mutations at 10, 1,000 and 10,000 lines: the indexed lookups {@link Cart} uses,
+ * against the linear scan of the line list they replaced. Removal is measured at the tail and in
+ * the middle of the list; the middle case pays for shifting the lines behind it.
+ *
+ * Not picked up by surefire; run with
+ * {@code mvn -pl cart-service test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.ecommerce.cart.model.CartLineLookupBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartLineLookupBenchmark {
+    
+    @Param({"10", "1000", "10000"})
+    private int lines;
+    
+    private Cart cart;
+    private Long lastProductId;
+    private Long newProductId;
+    private int quantity;
+    
+    @Setup(Level.Iteration)
+    public void setUp() {
+        cart = Cart.newCart("bench@example.com");
+        for (long productId = 1; productId <= lines; productId++) {
+            cart.addItem(CartItem.of(productId, "Product " + productId, new BigDecimal("9.99"), 1));
+        }
+        lastProductId = (long) lines;
+        newProductId = lines + 1L;
+        cart.findItem(lastProductId);
+    }
+    
+    @Benchmark
+    public CartItem findIndexed() {
+        return cart.findItem(lastProductId);
+    }
+    
+    @Benchmark
+    public CartItem findByScan() {
+        for (CartItem item : cart.getItems()) {
+            if (item.getProductId().equals(lastProductId)) {
+                return item;
+            }
+        }
+        return null;
+    }
+    
+    @Benchmark
+    public boolean updateQuantity() {
+        quantity = quantity % 5 + 1;
+        return cart.updateItemQuantity(lastProductId, quantity);
+    }
+    
+    @Benchmark
+    public boolean addThenRemove() {
+        cart.addItem(CartItem.of(newProductId, "New product", new BigDecimal("4.50"), 1));
+        return cart.removeItem(newProductId);
+    }
+    
+    @Benchmark
+    public boolean removeMiddleThenAdd() {
+        // Re-adding appends, so the next invocation removes whichever line has moved to the middle
+        CartItem middle = cart.getItems().get(lines / 2);
+        boolean removed = cart.removeItem(middle.getProductId());
+        cart.addItem(middle);
+        return removed;
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CartLineLookupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.ecommerce.order.client;
+
+import com.example.ecommerce.common.dto.UIBean;
+import com.example.ecommerce.order.dto.CartSnapshotDto;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+@FeignClient(name = "cart-service")
+public interface CartServiceClient {
+    
+    @GetMapping("/api/cart/snapshots/{snapshotId}")
+    UIBean<CartSnapshotDto> getCartSnapshot(@RequestHeader("X-User-Email") String userEmail,
+                                            @PathVariable("snapshotId") String snapshotId);
+}
@@ -0,0 +1,65 @@
+package com.example.ecommerce.order.client;
+
+import com.example.ecommerce.order.dto.OrderEventDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Pushes each batch as a JSON array to the consumer's endpoint from
+ * {@code order.outbox.http.endpoints.<consumer>}. Any 2xx response confirms the batch;
+ * errors and timeouts leave it to be sent again.
+ */
+@Component
+@ConditionalOnProperty(name = "order.outbox.transport", havingValue = "http")
+public class HttpOrderEventTransport implements OrderEventTransport {
+    
+    private static final Logger logger = LoggerFactory.getLogger(HttpOrderEventTransport.class);
+    
+    static final String CONSUMER_HEADER = "X-Outbox-Consumer";
+    static final String ENDPOINT_PROPERTY_PREFIX = "order.outbox.http.endpoints.";
+    
+    private final Environment environment;
+    private final RestTemplate restTemplate;
+    
+    @Autowired
+    public HttpOrderEventTransport(Environment environment, RestTemplateBuilder restTemplateBuilder,
+                                   @Value("${order.outbox.http.connect-timeout:2s}") Duration connectTimeout,
+                                   @Value("${order.outbox.http.read-timeout:5s}") Duration readTimeout) {
+        this.environment = environment;
+        this.restTemplate = restTemplateBuilder
+            .setConnectTimeout(connectTimeout)
+            .setReadTimeout(readTimeout)
+            .build();
+    }
+    
+    @Override
+    public void deliver(String consumer, List<OrderEventDto> events) {
+        String endpoint = environment.getProperty(ENDPOINT_PROPERTY_PREFIX + consumer);
+        if (endpoint == null) {
+            throw new IllegalStateException("No order event endpoint configured for consumer: " + consumer);
+        }
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(CONSUMER_HEADER, consumer);
+        
+        restTemplate.postForEntity(endpoint, new HttpEntity<>(events, headers), Void.class);
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Pushed {} order events to consumer: {}, endpoint: {}", events.size(), consumer, endpoint);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.ecommerce.order.client;
+
+import com.example.ecommerce.order.dto.OrderEventDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Delivers events inside this service as Spring application events, one per event, to
+ * {@code @EventListener(OrderEventDto.class)} methods. A listener that throws fails the batch.
+ * The default transport, meant for local runs and tests.
+ */
+@Component
+@ConditionalOnProperty(name = "order.outbox.transport", havingValue = "local", matchIfMissing = true)
+public class LocalOrderEventTransport implements OrderEventTransport {
+    
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    public LocalOrderEventTransport(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+    
+    @Override
+    public void deliver(String consumer, List<OrderEventDto> events) {
+        events.forEach(eventPublisher::publishEvent);
+    }
+}
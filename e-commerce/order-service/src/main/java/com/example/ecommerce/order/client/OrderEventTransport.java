@@ -0,0 +1,15 @@
+package com.example.ecommerce.order.client;
+
+import com.example.ecommerce.order.dto.OrderEventDto;
+
+import java.util.List;
+
+/**
+ * Carries batches of outbox events to one consumer. The relay only advances the consumer's
+ * offset after {@link #deliver} returns, so an implementation must throw when it cannot
+ * confirm delivery; the batch is then sent again on the next run.
+ */
+public interface OrderEventTransport {
+    
+    void deliver(String consumer, List<OrderEventDto> events);
+}
@@ -19,6 +19,9 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.sql.DataSource;
 import jakarta.persistence.EntityManagerFactory;
+import com.example.ecommerce.order.model.IdSequences;
+
+import java.util.Properties;
 
 @Configuration
 @EnableJpaAuditing
@@ -99,7 +102,7 @@ public class OrderServiceConfig {
         HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
         vendorAdapter.setGenerateDdl(false);
         vendorAdapter.setShowSql(showSql);
-        vendorAdapter.setDatabasePlatform("org.hibernate.dialect.PostgreSQLDialect");
+        vendorAdapter.setDatabasePlatform("org.hibernate.dialect.MySQLDialect");
         
         HibernateJpaDialect jpd = new HibernateJpaDialect();
         
@@ -108,10 +111,26 @@ public class OrderServiceConfig {
         factory.setJpaVendorAdapter(vendorAdapter);
         factory.setPackagesToScan("com.example.ecommerce.order.model");
         factory.setDataSource(orderEntityDataSource());
+        factory.setJpaProperties(jpaProperties());
         
         return factory;
     }
     
+    /**
+     * Batches inserts and updates; entity ids come from pooled generators, so nothing forces a
+     * row-by-row INSERT. Ordering groups statements per table so an order and its items become
+     * one batch per table.
+     */
+    private Properties jpaProperties() {
+        Properties properties = new Properties();
+        properties.put("hibernate.hbm2ddl.auto", ddlAuto);
+        properties.put("hibernate.jdbc.batch_size", String.valueOf(IdSequences.ALLOCATION_SIZE));
+        properties.put("hibernate.order_inserts", "true");
+        properties.put("hibernate.order_updates", "true");
+        properties.put("hibernate.jdbc.batch_versioned_data", "true");
+        return properties;
+    }
+    
     @Bean(name = "transactionManager")
     public PlatformTransactionManager transactionManager(
             @Qualifier("entityManagerFactory") EntityManagerFactory entityManagerFactory) {
@@ -4,6 +4,8 @@ import com.example.ecommerce.common.dto.UIBean;
 import com.example.ecommerce.common.dto.UIBeanPaginated;
 import com.example.ecommerce.order.dto.CreateOrderRequest;
 import com.example.ecommerce.order.dto.OrderDto;
+import com.example.ecommerce.order.dto.OrderHistoryPageDto;
+import com.example.ecommerce.order.dto.OrderStatusUpdateDto;
 import com.example.ecommerce.order.dto.UpdateOrderStatusRequest;
 import com.example.ecommerce.order.service.OrderService;
 import org.slf4j.Logger;
@@ -22,6 +24,9 @@ public class OrderController {
     
     private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
     
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    
     private final OrderService orderService;
     
     @Autowired
@@ -29,19 +34,29 @@ public class OrderController {
         this.orderService = orderService;
     }
     
+    /**
+     * With an {@code Idempotency-Key} header, a retry returns the order created by the first
+     * request with 200 and {@code Idempotent-Replayed: true} instead of creating another one.
+     */
     @PostMapping
     public ResponseEntity<UIBean<OrderDto>> createOrder(
             @RequestHeader("X-User-Email") String userEmail,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
             @RequestBody CreateOrderRequest request) {
         
         if (logger.isDebugEnabled()) {
-            logger.debug("Creating order for user: {}, items count: {}", 
-                userEmail, request.getItems() != null ? request.getItems().size() : 0);
+            logger.debug("Creating order for user: {}, items count: {}, cart snapshot: {}, idempotency key: {}", 
+                userEmail, request.getItems() != null ? request.getItems().size() : 0, request.getCartSnapshotId(),
+                idempotencyKey);
         }
         
         try {
-            OrderDto order = orderService.createOrder(userEmail, request);
-            UIBean<OrderDto> response = UIBean.success(order, "Order created successfully");
+            OrderService.CreatedOrder created = orderService.createOrder(userEmail, request, idempotencyKey);
+            if (created.isReplayed()) {
+                UIBean<OrderDto> response = UIBean.success(created.getOrder(), "Order already created for this Idempotency-Key");
+                return ResponseEntity.ok().header(IDEMPOTENT_REPLAYED, "true").body(response);
+            }
+            UIBean<OrderDto> response = UIBean.success(created.getOrder(), "Order created successfully");
             return new ResponseEntity<>(response, HttpStatus.CREATED);
         } catch (Exception e) {
             logger.error("Error creating order for user: {}", userEmail, e);
@@ -84,6 +99,30 @@ public class OrderController {
         }
     }
     
+    @GetMapping("/history")
+    public ResponseEntity<UIBean<OrderHistoryPageDto>> getOrderHistory(
+            @RequestHeader("X-User-Email") String userEmail,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer pageSize) {
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching order history for user: {}, cursor: {}, pageSize: {}", userEmail, cursor, pageSize);
+        }
+        
+        try {
+            OrderHistoryPageDto history = orderService.getOrderHistory(userEmail, cursor, pageSize);
+            UIBean<OrderHistoryPageDto> response = UIBean.success(history, "Order history retrieved successfully");
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            logger.error("Error fetching order history for user: {}", userEmail, e);
+            UIBean<OrderHistoryPageDto> errorResponse = new UIBean<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error occurred: " + e.getMessage());
+            errorResponse.setResponse("ERROR");
+            return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<UIBean<OrderDto>> getOrderById(@PathVariable Long id) {
         if (logger.isDebugEnabled()) {
@@ -104,8 +143,12 @@ public class OrderController {
         }
     }
     
+    /**
+     * 200 when the order moved to (or already had) the requested status, 404 for an unknown
+     * order and 409 when the current status does not allow the transition.
+     */
     @PutMapping("/{id}/status")
-    public ResponseEntity<UIBean<OrderDto>> updateOrderStatus(
+    public ResponseEntity<UIBean<OrderStatusUpdateDto>> updateOrderStatus(
             @PathVariable Long id,
             @RequestBody UpdateOrderStatusRequest request) {
         
@@ -114,12 +157,20 @@ public class OrderController {
         }
         
         try {
-            OrderDto order = orderService.updateOrderStatus(id, request.getStatus());
-            UIBean<OrderDto> response = UIBean.success(order, "Order status updated successfully");
-            return new ResponseEntity<>(response, HttpStatus.OK);
+            OrderStatusUpdateDto result = orderService.updateOrderStatus(id, request.getStatus());
+            return switch (result.getResult()) {
+                case UPDATED -> new ResponseEntity<>(
+                    UIBean.success(result, "Order status updated successfully"), HttpStatus.OK);
+                case UNCHANGED -> new ResponseEntity<>(
+                    UIBean.success(result, "Order already has status " + result.getStatus()), HttpStatus.OK);
+                case NOT_FOUND -> statusUpdateFailure(result, "Order not found with ID: " + id, HttpStatus.NOT_FOUND);
+                case CONFLICT -> statusUpdateFailure(result,
+                    "Order status cannot change from " + result.getStatus() + " to " + request.getStatus().toUpperCase(),
+                    HttpStatus.CONFLICT);
+            };
         } catch (Exception e) {
             logger.error("Error updating order status for ID: {}", id, e);
-            UIBean<OrderDto> errorResponse = new UIBean<>();
+            UIBean<OrderStatusUpdateDto> errorResponse = new UIBean<>();
             errorResponse.setSuccess(false);
             errorResponse.setMessage("Error occurred: " + e.getMessage());
             errorResponse.setResponse("ERROR");
@@ -172,4 +223,14 @@ public class OrderController {
             return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+    
+    private static ResponseEntity<UIBean<OrderStatusUpdateDto>> statusUpdateFailure(
+            OrderStatusUpdateDto result, String message, HttpStatus httpStatus) {
+        UIBean<OrderStatusUpdateDto> response = new UIBean<>();
+        response.setData(result);
+        response.setSuccess(false);
+        response.setMessage(message);
+        response.setResponse(result.getResult().name());
+        return new ResponseEntity<>(response, httpStatus);
+    }
 }
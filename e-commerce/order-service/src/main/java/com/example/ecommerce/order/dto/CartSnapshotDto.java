@@ -0,0 +1,22 @@
+package com.example.ecommerce.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The part of a cart-service checkout snapshot that an order is built from.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSnapshotDto {
+    private String id;
+    private String userEmail;
+    private List<OrderItemDto> items = new ArrayList<>();
+    private BigDecimal total;
+}
@@ -10,6 +10,17 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class CreateOrderRequest {
+    
+    /**
+     * Client-priced lines; only accepted when {@code order.client-priced-items.enabled} is set.
+     */
     private List<OrderItemDto> items;
+    
     private String shippingAddress;
+    
+    /**
+     * Id of a cart-service checkout snapshot. When set, lines and prices come from the snapshot
+     * and {@code items} must be left empty.
+     */
+    private String cartSnapshotId;
 }
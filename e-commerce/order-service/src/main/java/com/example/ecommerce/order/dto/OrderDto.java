@@ -20,6 +20,7 @@ public class OrderDto {
     private String status;
     private String shippingAddress;
     private String razorpayOrderId;
+    private String cartSnapshotId;
     private Date createdAt;
     private Date updatedAt;
 }
@@ -0,0 +1,27 @@
+package com.example.ecommerce.order.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * One order lifecycle event as delivered to consumers. Delivery is at least once; consumers
+ * drop events whose {@code sequence} they have already processed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderEventDto {
+    private Long sequence;
+    private String type;
+    private Long orderId;
+    private String userEmail;
+    private String status;
+    private BigDecimal totalAmount;
+    private Date occurredAt;
+}
@@ -0,0 +1,20 @@
+package com.example.ecommerce.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a user's order history. Pass {@code nextCursor} back to get the following page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryPageDto {
+    private List<OrderDto> orders = new ArrayList<>();
+    private String nextCursor;
+    private boolean hasMore;
+}
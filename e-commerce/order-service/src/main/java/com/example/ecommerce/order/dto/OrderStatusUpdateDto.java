@@ -0,0 +1,29 @@
+package com.example.ecommerce.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a status change request. {@code status} is the order's status after the call,
+ * which on a conflict is the status that blocked the transition.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusUpdateDto {
+    private Long orderId;
+    private Result result;
+    private String status;
+    
+    public enum Result {
+        /** The order moved to the requested status. */
+        UPDATED,
+        /** The order already had the requested status; nothing was written. */
+        UNCHANGED,
+        /** No order with this id. */
+        NOT_FOUND,
+        /** The current status does not allow moving to the requested one. */
+        CONFLICT
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.ecommerce.order.mapper;
 
 import com.example.ecommerce.order.dto.OrderDto;
+import com.example.ecommerce.order.dto.OrderEventDto;
 import com.example.ecommerce.order.dto.OrderItemDto;
 import com.example.ecommerce.order.model.Order;
 import com.example.ecommerce.order.model.OrderItem;
+import com.example.ecommerce.order.model.OrderOutboxEvent;
 
 import java.util.stream.Collectors;
 
@@ -21,6 +23,7 @@ public class OrderMapper {
         dto.setStatus(order.getStatus() != null ? order.getStatus().name() : null);
         dto.setShippingAddress(order.getShippingAddress());
         dto.setRazorpayOrderId(order.getRazorpayOrderId());
+        dto.setCartSnapshotId(order.getCartSnapshotId());
         dto.setCreatedAt(order.getCreatedAt());
         dto.setUpdatedAt(order.getUpdatedAt());
         
@@ -33,6 +36,23 @@ public class OrderMapper {
         return dto;
     }
     
+    public static OrderEventDto toEventDto(OrderOutboxEvent event) {
+        if (event == null) {
+            return null;
+        }
+        
+        OrderEventDto dto = new OrderEventDto();
+        dto.setSequence(event.getId());
+        dto.setType(event.getType().name());
+        dto.setOrderId(event.getOrderId());
+        dto.setUserEmail(event.getUserEmail());
+        dto.setStatus(event.getStatus() != null ? event.getStatus().name() : null);
+        dto.setTotalAmount(event.getTotalAmount());
+        dto.setOccurredAt(event.getCreatedAt());
+        
+        return dto;
+    }
+    
     public static OrderItemDto toItemDto(OrderItem item) {
         if (item == null) {
             return null;
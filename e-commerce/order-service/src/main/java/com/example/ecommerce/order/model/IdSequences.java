@@ -0,0 +1,16 @@
+package com.example.ecommerce.order.model;
+
+/**
+ * Shared settings of the {@code id_sequences} table behind the order id generators.
+ */
+public final class IdSequences {
+    
+    /**
+     * Ids reserved per round trip to {@code id_sequences}; also the JDBC batch size, so a full
+     * pool of new rows goes out in one batch.
+     */
+    public static final int ALLOCATION_SIZE = 50;
+    
+    private IdSequences() {
+    }
+}
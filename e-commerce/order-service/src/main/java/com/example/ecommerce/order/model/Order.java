@@ -1,6 +1,6 @@
 package com.example.ecommerce.order.model;
 
-import com.example.ecommerce.common.entity.AbstractBaseEntity;
+import com.example.ecommerce.common.entity.AbstractAuditableEntity;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -8,7 +8,9 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 @Entity
 @Table(name = "orders")
@@ -16,7 +18,18 @@ import java.util.List;
 @EqualsAndHashCode(callSuper = true)
 @NoArgsConstructor
 @AllArgsConstructor
-public class Order extends AbstractBaseEntity {
+public class Order extends AbstractAuditableEntity {
+    
+    /**
+     * Ids come from a pooled table generator rather than IDENTITY, so Hibernate knows them
+     * before the INSERT and can batch an order together with its items.
+     */
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_id_generator")
+    @TableGenerator(name = "order_id_generator", table = "id_sequences", pkColumnName = "sequence_name",
+        valueColumnName = "next_val", pkColumnValue = "orders", allocationSize = IdSequences.ALLOCATION_SIZE)
+    private Long id;
     
     private String userEmail;
     
@@ -33,7 +46,27 @@ public class Order extends AbstractBaseEntity {
     @Column(name = "razorpay_order_id")
     private String razorpayOrderId;
     
+    @Column(name = "cart_snapshot_id", length = 64)
+    private String cartSnapshotId;
+    
+    /**
+     * Order lifecycle. PENDING is only ever the initial status; DELIVERED and CANCELLED are final.
+     */
     public enum OrderStatus {
-        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED
+        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED;
+        
+        /**
+         * Statuses an order may move into this one from. Enforced in the WHERE clause of the
+         * status update, so no transition outside this table can ever be written.
+         */
+        public Set<OrderStatus> allowedSources() {
+            return switch (this) {
+                case PENDING -> EnumSet.noneOf(OrderStatus.class);
+                case CONFIRMED -> EnumSet.of(PENDING);
+                case SHIPPED -> EnumSet.of(CONFIRMED);
+                case DELIVERED -> EnumSet.of(SHIPPED);
+                case CANCELLED -> EnumSet.of(PENDING, CONFIRMED);
+            };
+        }
     }
 }
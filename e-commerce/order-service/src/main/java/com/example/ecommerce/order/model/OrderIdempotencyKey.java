@@ -0,0 +1,42 @@
+package com.example.ecommerce.order.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * An Idempotency-Key a user sent with an order creation, together with the SHA-256 of the
+ * request body and the order it produced.
+ */
+@Entity
+@Table(name = "order_idempotency_keys")
+@Data
+@NoArgsConstructor
+public class OrderIdempotencyKey {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+    
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String idempotencyKey;
+    
+    @Column(name = "request_hash", nullable = false, length = 32)
+    private byte[] requestHash;
+    
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+    
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "expires_at", nullable = false)
+    private Date expiresAt;
+    
+    public boolean isExpired() {
+        return expiresAt.getTime() <= System.currentTimeMillis();
+    }
+}
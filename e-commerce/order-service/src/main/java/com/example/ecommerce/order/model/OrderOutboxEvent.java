@@ -0,0 +1,48 @@
+package com.example.ecommerce.order.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * One order lifecycle event in the outbox. The id is assigned by the database and doubles as
+ * the event sequence number consumers track.
+ */
+@Entity
+@Table(name = "order_outbox_events")
+@Data
+@NoArgsConstructor
+public class OrderOutboxEvent {
+    
+    public enum Type {
+        ORDER_CREATED, ORDER_STATUS_CHANGED
+    }
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 32)
+    private Type type;
+    
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+    
+    @Column(name = "user_email")
+    private String userEmail;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 32)
+    private Order.OrderStatus status;
+    
+    @Column(name = "total_amount")
+    private BigDecimal totalAmount;
+    
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+}
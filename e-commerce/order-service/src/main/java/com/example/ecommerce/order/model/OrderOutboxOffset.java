@@ -0,0 +1,28 @@
+package com.example.ecommerce.order.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * How far one consumer has got through the outbox.
+ */
+@Entity
+@Table(name = "order_outbox_offsets")
+@Data
+@NoArgsConstructor
+public class OrderOutboxOffset {
+    
+    @Id
+    @Column(name = "consumer", length = 64)
+    private String consumer;
+    
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId;
+    
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "updated_at", nullable = false)
+    private Date updatedAt;
+}
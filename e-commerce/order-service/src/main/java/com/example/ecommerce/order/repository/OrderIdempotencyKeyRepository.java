@@ -0,0 +1,34 @@
+package com.example.ecommerce.order.repository;
+
+import com.example.ecommerce.order.model.OrderIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.Optional;
+
+@Repository
+public interface OrderIdempotencyKeyRepository extends JpaRepository<OrderIdempotencyKey, Long> {
+    Optional<OrderIdempotencyKey> findByUserEmailAndIdempotencyKey(String userEmail, String idempotencyKey);
+    
+    /**
+     * Drops one key if it is still expired, so a fresh request can take it over.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from OrderIdempotencyKey k where k.id = :id and k.expiresAt <= :now")
+    int deleteIfExpired(@Param("id") Long id, @Param("now") Date now);
+    
+    /**
+     * Deletes up to {@code limit} expired keys, oldest first, walking the expires_at index.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM order_idempotency_keys WHERE expires_at <= :now ORDER BY expires_at LIMIT :limit",
+        nativeQuery = true)
+    int deleteExpired(@Param("now") Date now, @Param("limit") int limit);
+}
@@ -0,0 +1,33 @@
+package com.example.ecommerce.order.repository;
+
+import com.example.ecommerce.order.model.OrderOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface OrderOutboxEventRepository extends JpaRepository<OrderOutboxEvent, Long> {
+    
+    /**
+     * The next events after a consumer's offset, in sequence order. The limit comes from the pageable.
+     */
+    @Query("select e from OrderOutboxEvent e where e.id > :afterId order by e.id")
+    List<OrderOutboxEvent> findAfter(@Param("afterId") Long afterId, Pageable limit);
+    
+    /**
+     * Deletes up to {@code limit} events that every consumer has received and that are older
+     * than the retention cutoff.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM order_outbox_events WHERE id <= :upToId AND created_at < :cutoff ORDER BY id LIMIT :limit",
+        nativeQuery = true)
+    int deleteDelivered(@Param("upToId") Long upToId, @Param("cutoff") Date cutoff, @Param("limit") int limit);
+}
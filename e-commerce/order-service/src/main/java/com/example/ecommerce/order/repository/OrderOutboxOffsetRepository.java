@@ -0,0 +1,36 @@
+package com.example.ecommerce.order.repository;
+
+import com.example.ecommerce.order.model.OrderOutboxOffset;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface OrderOutboxOffsetRepository extends JpaRepository<OrderOutboxOffset, String> {
+    
+    /**
+     * Locks the consumer's offset for the rest of the transaction. Returns empty when another
+     * relay instance already holds it, instead of waiting.
+     */
+    @Query(value = "SELECT * FROM order_outbox_offsets WHERE consumer = :consumer FOR UPDATE SKIP LOCKED",
+        nativeQuery = true)
+    Optional<OrderOutboxOffset> lockForDelivery(@Param("consumer") String consumer);
+    
+    /**
+     * Registers a consumer at the start of the outbox; an existing offset is left alone.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO order_outbox_offsets (consumer, last_event_id, updated_at) VALUES (:consumer, 0, NOW(6))",
+        nativeQuery = true)
+    int registerIfMissing(@Param("consumer") String consumer);
+    
+    @Query("select min(o.lastEventId) from OrderOutboxOffset o where o.consumer in :consumers")
+    Long findMinLastEventId(@Param("consumers") Collection<String> consumers);
+}
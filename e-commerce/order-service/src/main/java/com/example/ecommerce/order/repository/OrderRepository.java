@@ -4,11 +4,63 @@ import com.example.ecommerce.order.model.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByUserEmail(String userEmail, Pageable pageable);
     
+    /**
+     * First phase of an order listing: one page of ids, paged and sorted in the database
+     * without touching the items.
+     */
+    @Query(value = "select o.id from Order o where o.userEmail = :userEmail",
+        countQuery = "select count(o) from Order o where o.userEmail = :userEmail")
+    Page<Long> findIdsByUserEmail(@Param("userEmail") String userEmail, Pageable pageable);
+    
+    /**
+     * Newest ids of a user's order history, for the first keyset page. The limit comes from
+     * the pageable; its sort is ignored.
+     */
+    @Query("select o.id from Order o where o.userEmail = :userEmail order by o.createdAt desc, o.id desc")
+    List<Long> findLatestIds(@Param("userEmail") String userEmail, Pageable limit);
+    
+    /**
+     * Ids of the orders that come after the cursor position (createdAt, id) in history order.
+     * Seeks on the (user_email, created_at, id) index instead of skipping an offset.
+     */
+    @Query("select o.id from Order o where o.userEmail = :userEmail "
+        + "and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id)) "
+        + "order by o.createdAt desc, o.id desc")
+    List<Long> findIdsBefore(@Param("userEmail") String userEmail, @Param("createdAt") Date createdAt,
+                             @Param("id") Long id, Pageable limit);
+    
+    /**
+     * Second phase: the orders for those ids with their items, in a single join fetch. The
+     * result is in no particular order.
+     */
+    @Query("select distinct o from Order o left join fetch o.items where o.id in :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+    
     Order findByRazorpayOrderId(String razorpayOrderId);
+    
+    /**
+     * Compare-and-set status change: moves the order to {@code status} only if its current
+     * status is one of {@code from}. Returns the number of rows changed, 0 or 1.
+     */
+    @Modifying
+    @Query("update Order o set o.status = :status, o.updatedAt = :now where o.id = :id and o.status in :from")
+    int updateStatusIfIn(@Param("id") Long id, @Param("status") Order.OrderStatus status,
+                         @Param("from") Collection<Order.OrderStatus> from, @Param("now") Date now);
+    
+    @Query("select o.status from Order o where o.id = :id")
+    Optional<Order.OrderStatus> findStatusById(@Param("id") Long id);
 }
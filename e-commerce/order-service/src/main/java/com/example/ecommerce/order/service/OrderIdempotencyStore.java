@@ -0,0 +1,139 @@
+package com.example.ecommerce.order.service;
+
+import com.example.ecommerce.common.exception.InvalidArgumentException;
+import com.example.ecommerce.order.dto.CreateOrderRequest;
+import com.example.ecommerce.order.model.OrderIdempotencyKey;
+import com.example.ecommerce.order.repository.OrderIdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Remembers which order each Idempotency-Key produced, for a limited time.
+ *
+ * Only keys whose order committed are stored: {@link OrderService} writes the key in the same
+ * transaction as the order, and the unique (user_email, idempotency_key) constraint makes a
+ * concurrent duplicate roll back instead of creating a second order. Expired keys are deleted
+ * by a scheduled job in small batches.
+ */
+@Component
+public class OrderIdempotencyStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderIdempotencyStore.class);
+    
+    static final int MAX_KEY_LENGTH = 64;
+    
+    private final OrderIdempotencyKeyRepository keyRepository;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${order.idempotency.ttl:24h}")
+    private Duration ttl;
+    
+    @Value("${order.idempotency.cleanup.batch-size:1000}")
+    private int batchSize;
+    
+    @Value("${order.idempotency.cleanup.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+    
+    @Value("${order.idempotency.cleanup.batch-pause-ms:100}")
+    private long batchPauseMillis;
+    
+    @Autowired
+    public OrderIdempotencyStore(OrderIdempotencyKeyRepository keyRepository, ObjectMapper objectMapper) {
+        this.keyRepository = keyRepository;
+        this.objectMapper = objectMapper;
+    }
+    
+    public void validateKey(String idempotencyKey) {
+        if (!StringUtils.hasText(idempotencyKey) || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+    }
+    
+    public byte[] hash(CreateOrderRequest request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unable to hash order request", e);
+        }
+    }
+    
+    /**
+     * Returns the id of the order created earlier with this key, or {@code null} when the key
+     * is new or has expired. A key reused with a different request body is rejected.
+     */
+    public Long findOrderId(String userEmail, String idempotencyKey, byte[] requestHash) {
+        Optional<OrderIdempotencyKey> stored = keyRepository.findByUserEmailAndIdempotencyKey(userEmail, idempotencyKey);
+        if (stored.isEmpty()) {
+            return null;
+        }
+        
+        OrderIdempotencyKey key = stored.get();
+        if (key.isExpired()) {
+            keyRepository.deleteIfExpired(key.getId(), new Date());
+            return null;
+        }
+        if (!MessageDigest.isEqual(key.getRequestHash(), requestHash)) {
+            throw new InvalidArgumentException("Idempotency-Key " + idempotencyKey + " was already used with a different request");
+        }
+        return key.getOrderId();
+    }
+    
+    /**
+     * Stores the key for a new order. Must run inside the transaction that inserts the order;
+     * fails with a DataIntegrityViolationException if another request stored the same key first.
+     */
+    public void record(String userEmail, String idempotencyKey, byte[] requestHash, Long orderId) {
+        OrderIdempotencyKey key = new OrderIdempotencyKey();
+        key.setUserEmail(userEmail);
+        key.setIdempotencyKey(idempotencyKey);
+        key.setRequestHash(requestHash);
+        key.setOrderId(orderId);
+        key.setExpiresAt(new Date(System.currentTimeMillis() + ttl.toMillis()));
+        keyRepository.save(key);
+    }
+    
+    @Scheduled(fixedDelayString = "${order.idempotency.cleanup.interval-ms:600000}",
+        initialDelayString = "${order.idempotency.cleanup.initial-delay-ms:60000}")
+    public void deleteExpiredKeys() {
+        Date now = new Date();
+        int deleted = 0;
+        
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int removed = keyRepository.deleteExpired(now, batchSize);
+            deleted += removed;
+            if (removed < batchSize) {
+                break;
+            }
+            pause();
+        }
+        
+        if (deleted > 0) {
+            logger.info("Deleted {} expired order idempotency keys", deleted);
+        }
+    }
+    
+    private void pause() {
+        if (batchPauseMillis <= 0) {
+            return;
+        }
+        
+        try {
+            Thread.sleep(batchPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.ecommerce.order.service;
+
+import com.example.ecommerce.order.model.Order;
+import com.example.ecommerce.order.model.OrderOutboxEvent;
+import com.example.ecommerce.order.repository.OrderOutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+/**
+ * Appends order lifecycle events to the outbox table. Every method joins the caller's
+ * transaction and refuses to run without one, so an event is committed exactly when the change
+ * it describes is. {@link OrderOutboxRelay} delivers them afterwards.
+ */
+@Component
+public class OrderOutbox {
+    
+    private final OrderOutboxEventRepository eventRepository;
+    
+    @Autowired
+    public OrderOutbox(OrderOutboxEventRepository eventRepository) {
+        this.eventRepository = eventRepository;
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderCreated(Order order) {
+        OrderOutboxEvent event = newEvent(OrderOutboxEvent.Type.ORDER_CREATED, order.getId());
+        event.setUserEmail(order.getUserEmail());
+        event.setStatus(order.getStatus());
+        event.setTotalAmount(order.getTotalAmount());
+        eventRepository.save(event);
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Long orderId, Order.OrderStatus status) {
+        OrderOutboxEvent event = newEvent(OrderOutboxEvent.Type.ORDER_STATUS_CHANGED, orderId);
+        event.setStatus(status);
+        eventRepository.save(event);
+    }
+    
+    private static OrderOutboxEvent newEvent(OrderOutboxEvent.Type type, Long orderId) {
+        OrderOutboxEvent event = new OrderOutboxEvent();
+        event.setType(type);
+        event.setOrderId(orderId);
+        event.setCreatedAt(new Date());
+        return event;
+    }
+}
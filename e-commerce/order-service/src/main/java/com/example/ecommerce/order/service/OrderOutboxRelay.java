@@ -0,0 +1,202 @@
+package com.example.ecommerce.order.service;
+
+import com.example.ecommerce.order.client.OrderEventTransport;
+import com.example.ecommerce.order.dto.OrderEventDto;
+import com.example.ecommerce.order.mapper.OrderMapper;
+import com.example.ecommerce.order.model.OrderOutboxEvent;
+import com.example.ecommerce.order.model.OrderOutboxOffset;
+import com.example.ecommerce.order.repository.OrderOutboxEventRepository;
+import com.example.ecommerce.order.repository.OrderOutboxOffsetRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers outbox events to every configured consumer through the {@link OrderEventTransport}.
+ *
+ * Each consumer has its own offset row, so a slow or failing consumer never holds back the
+ * others. A run locks the offset row with SKIP LOCKED (another instance already delivering to
+ * that consumer is simply skipped), sends the next batch and moves the offset past it in the
+ * same transaction. If delivery fails the offset stays put and the batch is sent again, which
+ * makes delivery at least once.
+ *
+ * Event ids come from AUTO_INCREMENT, and a transaction can commit a higher id before a lower
+ * one. A batch therefore stops at a gap in the sequence until the gap is older than
+ * {@code gap-timeout}; after that the missing id is treated as rolled back, skipped and logged.
+ * The timeout must stay above the longest an order transaction can stay open, including
+ * lock waits (InnoDB's innodb_lock_wait_timeout defaults to 50s), or a slow commit is lost.
+ *
+ * Events every consumer has received are deleted after the retention period. With no
+ * consumer configured, nothing is delivered and events are simply kept for the retention
+ * period, so the table stays bounded.
+ */
+@Component
+public class OrderOutboxRelay {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutboxRelay.class);
+    
+    private final OrderOutboxEventRepository eventRepository;
+    private final OrderOutboxOffsetRepository offsetRepository;
+    private final OrderEventTransport transport;
+    private final TransactionTemplate transactionTemplate;
+    
+    /** Outbox ids skipped as rolled back since startup. */
+    private final AtomicLong skippedIds = new AtomicLong();
+    
+    @Value("${order.outbox.relay.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${order.outbox.relay.consumers:}")
+    private List<String> consumers;
+    
+    @Value("${order.outbox.relay.batch-size:100}")
+    private int batchSize;
+    
+    @Value("${order.outbox.relay.max-batches-per-run:10}")
+    private int maxBatchesPerRun;
+    
+    @Value("${order.outbox.relay.gap-timeout:120s}")
+    private Duration gapTimeout;
+    
+    @Value("${order.outbox.retention:7d}")
+    private Duration retention;
+    
+    @Value("${order.outbox.cleanup.batch-size:1000}")
+    private int cleanupBatchSize;
+    
+    @Autowired
+    public OrderOutboxRelay(OrderOutboxEventRepository eventRepository, OrderOutboxOffsetRepository offsetRepository,
+                            OrderEventTransport transport, PlatformTransactionManager transactionManager) {
+        this.eventRepository = eventRepository;
+        this.offsetRepository = offsetRepository;
+        this.transport = transport;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerConsumers() {
+        if (!enabled) {
+            return;
+        }
+        
+        consumers.forEach(offsetRepository::registerIfMissing);
+        logger.info("Order outbox relay delivering to consumers: {} via {}", consumers,
+            transport.getClass().getSimpleName());
+    }
+    
+    @Scheduled(fixedDelayString = "${order.outbox.relay.interval-ms:1000}",
+        initialDelayString = "${order.outbox.relay.initial-delay-ms:10000}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        
+        for (String consumer : consumers) {
+            try {
+                for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                    if (!deliverBatch(consumer)) {
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Order event delivery to consumer: {} failed, will retry: {}", consumer, e.getMessage());
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${order.outbox.cleanup.interval-ms:3600000}",
+        initialDelayString = "${order.outbox.cleanup.initial-delay-ms:60000}")
+    public void deleteDeliveredEvents() {
+        // Without consumers there is nobody to wait for; retention alone bounds the table
+        Long deliveredToAll = consumers.isEmpty() ? Long.valueOf(Long.MAX_VALUE)
+            : offsetRepository.findMinLastEventId(consumers);
+        if (deliveredToAll == null || deliveredToAll <= 0) {
+            return;
+        }
+        
+        Date cutoff = new Date(System.currentTimeMillis() - retention.toMillis());
+        int deleted = 0;
+        int removed;
+        do {
+            removed = eventRepository.deleteDelivered(deliveredToAll, cutoff, cleanupBatchSize);
+            deleted += removed;
+        } while (removed == cleanupBatchSize);
+        
+        if (deleted > 0) {
+            logger.info("Deleted {} delivered order outbox events", deleted);
+        }
+    }
+    
+    /**
+     * Sends the next batch to one consumer. Returns {@code true} when a full batch went out and
+     * more may be waiting.
+     */
+    private boolean deliverBatch(String consumer) {
+        Boolean more = transactionTemplate.execute(status -> {
+            Optional<OrderOutboxOffset> locked = offsetRepository.lockForDelivery(consumer);
+            if (locked.isEmpty()) {
+                return false;
+            }
+            
+            OrderOutboxOffset offset = locked.get();
+            List<OrderOutboxEvent> candidates = eventRepository.findAfter(offset.getLastEventId(),
+                PageRequest.of(0, batchSize));
+            List<OrderEventDto> events = contiguous(offset.getLastEventId(), candidates);
+            if (events.isEmpty()) {
+                return false;
+            }
+            
+            transport.deliver(consumer, events);
+            
+            offset.setLastEventId(events.get(events.size() - 1).getSequence());
+            offset.setUpdatedAt(new Date());
+            offsetRepository.save(offset);
+            
+            if (logger.isDebugEnabled()) {
+                logger.debug("Delivered {} order events to consumer: {}, offset: {}",
+                    events.size(), consumer, offset.getLastEventId());
+            }
+            return events.size() == candidates.size() && candidates.size() == batchSize;
+        });
+        return Boolean.TRUE.equals(more);
+    }
+    
+    /**
+     * The leading run of events without a recent gap in the sequence.
+     */
+    private List<OrderEventDto> contiguous(Long lastEventId, List<OrderOutboxEvent> candidates) {
+        long gapCutoff = System.currentTimeMillis() - gapTimeout.toMillis();
+        long expected = lastEventId + 1;
+        
+        List<OrderEventDto> events = new ArrayList<>(candidates.size());
+        for (OrderOutboxEvent event : candidates) {
+            if (event.getId() != expected) {
+                if (event.getCreatedAt().getTime() > gapCutoff) {
+                    // A lower id may still be about to commit
+                    break;
+                }
+                long skippedTotal = skippedIds.addAndGet(event.getId() - expected);
+                logger.warn("Skipping order outbox ids {}..{} as rolled back; still missing after {}, skipped since start: {}",
+                    expected, event.getId() - 1, gapTimeout, skippedTotal);
+            }
+            events.add(OrderMapper.toEventDto(event));
+            expected = event.getId() + 1;
+        }
+        return events;
+    }
+}
@@ -3,25 +3,44 @@ package com.example.ecommerce.order.service;
 import com.example.ecommerce.common.constants.PaginationConstants;
 import com.example.ecommerce.common.exception.InvalidArgumentException;
 import com.example.ecommerce.common.exception.ResourceNotFoundException;
+import com.example.ecommerce.order.client.CartServiceClient;
+import com.example.ecommerce.order.dto.CartSnapshotDto;
 import com.example.ecommerce.order.dto.CreateOrderRequest;
 import com.example.ecommerce.order.dto.OrderDto;
+import com.example.ecommerce.order.dto.OrderHistoryPageDto;
 import com.example.ecommerce.order.dto.OrderItemDto;
+import com.example.ecommerce.order.dto.OrderStatusUpdateDto;
 import com.example.ecommerce.order.mapper.OrderMapper;
 import com.example.ecommerce.order.model.Order;
 import com.example.ecommerce.order.model.OrderItem;
 import com.example.ecommerce.order.repository.OrderRepository;
+import feign.FeignException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,41 +49,135 @@ public class OrderService {
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
     
     private final OrderRepository orderRepository;
+    private final CartServiceClient cartServiceClient;
+    private final OrderIdempotencyStore idempotencyStore;
+    private final OrderOutbox orderOutbox;
+    private final TransactionTemplate transactionTemplate;
+    
+    /**
+     * Whether orders may still be placed from client-supplied lines and prices instead of a
+     * cart snapshot. Off by default: those prices are whatever the client sends.
+     */
+    @Value("${order.client-priced-items.enabled:false}")
+    private boolean clientPricedItemsEnabled;
     
     @Autowired
-    public OrderService(OrderRepository orderRepository) {
+    public OrderService(OrderRepository orderRepository, CartServiceClient cartServiceClient,
+                        OrderIdempotencyStore idempotencyStore, OrderOutbox orderOutbox,
+                        PlatformTransactionManager transactionManager) {
         this.orderRepository = orderRepository;
+        this.cartServiceClient = cartServiceClient;
+        this.idempotencyStore = idempotencyStore;
+        this.orderOutbox = orderOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     
-    @Transactional
+    /**
+     * Not transactional as a whole: the snapshot is fetched from cart-service before any
+     * connection is taken. Only the cascading save of the order with its items and its
+     * ORDER_CREATED outbox event share a transaction.
+     */
     public OrderDto createOrder(String userEmail, CreateOrderRequest request) {
         if (logger.isDebugEnabled()) {
             logger.debug("Creating order for user: {}, items count: {}", 
-                userEmail, request.getItems() != null ? request.getItems().size() : 0);
+                userEmail, request != null && request.getItems() != null ? request.getItems().size() : 0);
         }
         
-        validateCreateOrderRequest(userEmail, request);
+        Order order = buildOrder(userEmail, request);
+        Order savedOrder = transactionTemplate.execute(status -> {
+            Order saved = orderRepository.save(order);
+            orderOutbox.orderCreated(saved);
+            return saved;
+        });
+        logger.info("Order created successfully with ID: {} for user: {}", savedOrder.getId(), userEmail);
+        
+        return OrderMapper.toDto(savedOrder);
+    }
+    
+    /**
+     * Creates the order at most once per Idempotency-Key. A retry with the same key and body
+     * gets the original order back without validation, snapshot lookup or inserts; the key is
+     * stored in the order's own transaction, so of two concurrent retries only one commits.
+     *
+     * @param idempotencyKey the client's key, or {@code null} to create unconditionally
+     */
+    public CreatedOrder createOrder(String userEmail, CreateOrderRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return new CreatedOrder(createOrder(userEmail, request), false);
+        }
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Creating order for user: {}, idempotency key: {}", userEmail, idempotencyKey);
+        }
+        
+        validateUserEmail(userEmail);
+        idempotencyStore.validateKey(idempotencyKey);
+        byte[] requestHash = idempotencyStore.hash(request);
+        
+        Long existingOrderId = idempotencyStore.findOrderId(userEmail, idempotencyKey, requestHash);
+        if (existingOrderId != null) {
+            return replay(existingOrderId, idempotencyKey);
+        }
+        
+        Order order = buildOrder(userEmail, request);
+        Order savedOrder;
+        try {
+            savedOrder = transactionTemplate.execute(status -> {
+                Order saved = orderRepository.save(order);
+                idempotencyStore.record(userEmail, idempotencyKey, requestHash, saved.getId());
+                orderOutbox.orderCreated(saved);
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent retry stored the key first; this order was rolled back along with our key
+            Long winningOrderId = idempotencyStore.findOrderId(userEmail, idempotencyKey, requestHash);
+            if (winningOrderId == null) {
+                throw e;
+            }
+            return replay(winningOrderId, idempotencyKey);
+        }
+        
+        logger.info("Order created successfully with ID: {} for user: {}, idempotency key: {}", 
+            savedOrder.getId(), userEmail, idempotencyKey);
+        return new CreatedOrder(OrderMapper.toDto(savedOrder), false);
+    }
+    
+    private CreatedOrder replay(Long orderId, String idempotencyKey) {
+        logger.info("Returning existing order with ID: {} for idempotency key: {}", orderId, idempotencyKey);
+        return new CreatedOrder(getOrderById(orderId), true);
+    }
+    
+    private Order buildOrder(String userEmail, CreateOrderRequest request) {
+        List<OrderItemDto> items;
+        if (request != null && StringUtils.hasText(request.getCartSnapshotId())) {
+            validateSnapshotOrderRequest(userEmail, request);
+            items = loadCartSnapshot(userEmail, request.getCartSnapshotId()).getItems();
+        } else {
+            if (!clientPricedItemsEnabled) {
+                throw new InvalidArgumentException("Orders must be placed from a cart snapshot: set cartSnapshotId "
+                    + "from POST /api/cart/checkout-snapshot");
+            }
+            validateCreateOrderRequest(userEmail, request);
+            items = request.getItems();
+        }
         
         Order order = new Order();
         order.setUserEmail(userEmail);
         order.setShippingAddress(request.getShippingAddress());
         order.setStatus(Order.OrderStatus.PENDING);
+        order.setCartSnapshotId(request.getCartSnapshotId());
         
-        order.setItems(request.getItems().stream()
+        order.setItems(items.stream()
             .map(itemDto -> OrderMapper.toItemEntity(itemDto, order))
             .collect(Collectors.toList()));
         
         BigDecimal totalAmount = BigDecimal.ZERO;
-        for (OrderItemDto item : request.getItems()) {
+        for (OrderItemDto item : items) {
             BigDecimal itemTotal = item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
             totalAmount = totalAmount.add(itemTotal);
         }
         order.setTotalAmount(totalAmount);
-        
-        Order savedOrder = orderRepository.save(order);
-        logger.info("Order created successfully with ID: {} for user: {}", savedOrder.getId(), userEmail);
-        
-        return OrderMapper.toDto(savedOrder);
+        return order;
     }
     
     public Page<OrderDto> getOrdersByUserEmail(String userEmail, Integer page, Integer pageSize) {
@@ -78,11 +191,79 @@ public class OrderService {
             : PaginationConstants.DEFAULT_PAGE_SIZE;
         int pageNumber = page != null ? page : PaginationConstants.DEFAULT_PAGE;
         
-        Sort sort = Sort.by("createdAt").descending();
+        // id breaks ties between orders created in the same instant, so pages never overlap
+        Sort sort = Sort.by("createdAt").descending().and(Sort.by("id").descending());
         Pageable pageable = PageRequest.of(pageNumber, size, sort);
         
-        Page<Order> orderPage = orderRepository.findByUserEmail(userEmail, pageable);
-        return orderPage.map(OrderMapper::toDto);
+        // Two phases instead of lazy-loading items per order: the page of ids, then one join fetch
+        Page<Long> idPage = orderRepository.findIdsByUserEmail(userEmail, pageable);
+        if (idPage.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, idPage.getTotalElements());
+        }
+        
+        List<OrderDto> orders = loadInOrder(idPage.getContent());
+        return new PageImpl<>(orders, pageable, idPage.getTotalElements());
+    }
+    
+    /**
+     * Keyset-paginated order history, newest first. Each page seeks past the (createdAt, id)
+     * of the last order on the previous page, so deep pages cost the same as the first one
+     * and orders placed while paging never shift or repeat entries. No total is computed.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     */
+    public OrderHistoryPageDto getOrderHistory(String userEmail, String cursor, Integer pageSize) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching order history for user: {}, cursor: {}, pageSize: {}", userEmail, cursor, pageSize);
+        }
+        
+        validateUserEmail(userEmail);
+        
+        int size = pageSize != null ? Math.min(pageSize, PaginationConstants.MAX_PAGE_SIZE) 
+            : PaginationConstants.DEFAULT_PAGE_SIZE;
+        if (size <= 0) {
+            throw new InvalidArgumentException("Page size must be greater than 0");
+        }
+        
+        // One extra row tells whether another page exists without a count query
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Long> ids;
+        if (StringUtils.hasText(cursor)) {
+            HistoryCursor position = HistoryCursor.decode(cursor);
+            ids = orderRepository.findIdsBefore(userEmail, position.createdAt, position.id, limit);
+        } else {
+            ids = orderRepository.findLatestIds(userEmail, limit);
+        }
+        
+        boolean hasMore = ids.size() > size;
+        if (hasMore) {
+            ids = ids.subList(0, size);
+        }
+        
+        List<OrderDto> orders = ids.isEmpty() ? List.of() : loadInOrder(ids);
+        String nextCursor = null;
+        if (hasMore && !orders.isEmpty()) {
+            OrderDto last = orders.get(orders.size() - 1);
+            nextCursor = new HistoryCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new OrderHistoryPageDto(orders, nextCursor, hasMore);
+    }
+    
+    /**
+     * Loads the orders with their items in one join fetch and returns them in the order of the ids.
+     */
+    private List<OrderDto> loadInOrder(List<Long> ids) {
+        Map<Long, Order> ordersById = orderRepository.findWithItemsByIdIn(ids).stream()
+            .collect(Collectors.toMap(Order::getId, Function.identity()));
+        
+        List<OrderDto> orders = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Order order = ordersById.get(id);
+            if (order != null) {
+                orders.add(OrderMapper.toDto(order));
+            }
+        }
+        return orders;
     }
     
     public OrderDto getOrderById(Long id) {
@@ -100,8 +281,15 @@ public class OrderService {
         return OrderMapper.toDto(order);
     }
     
+    /**
+     * Moves the order to the new status with one conditional UPDATE guarded by the transition
+     * table in {@link Order.OrderStatus#allowedSources()}, without loading the order. Concurrent
+     * updates (payment webhooks, admins) cannot overwrite each other: whichever commits second
+     * no longer matches and gets {@code CONFLICT}. Repeating a change that already happened
+     * gets {@code UNCHANGED}, so webhook redeliveries are harmless.
+     */
     @Transactional
-    public OrderDto updateOrderStatus(Long id, String statusStr) {
+    public OrderStatusUpdateDto updateOrderStatus(Long id, String statusStr) {
         if (logger.isDebugEnabled()) {
             logger.debug("Updating order status for ID: {}, new status: {}", id, statusStr);
         }
@@ -122,15 +310,24 @@ public class OrderService {
                 ". Valid values are: PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED");
         }
         
-        Order order = orderRepository.findById(id)
-            .orElseThrow(() -> new ResourceNotFoundException("Order not found with ID: " + id));
-        
-        order.setStatus(status);
-        Order updatedOrder = orderRepository.save(order);
+        int updated = orderRepository.updateStatusIfIn(id, status, status.allowedSources(), new Date());
+        if (updated == 1) {
+            orderOutbox.statusChanged(id, status);
+            logger.info("Order status updated successfully for ID: {}, new status: {}", id, status);
+            return new OrderStatusUpdateDto(id, OrderStatusUpdateDto.Result.UPDATED, status.name());
+        }
         
-        logger.info("Order status updated successfully for ID: {}, new status: {}", id, status);
+        // Only reached when the update matched nothing; one scalar read tells why
+        Order.OrderStatus current = orderRepository.findStatusById(id).orElse(null);
+        if (current == null) {
+            return new OrderStatusUpdateDto(id, OrderStatusUpdateDto.Result.NOT_FOUND, null);
+        }
+        if (current == status) {
+            return new OrderStatusUpdateDto(id, OrderStatusUpdateDto.Result.UNCHANGED, current.name());
+        }
         
-        return OrderMapper.toDto(updatedOrder);
+        logger.warn("Rejected order status change for ID: {}, from: {} to: {}", id, current, status);
+        return new OrderStatusUpdateDto(id, OrderStatusUpdateDto.Result.CONFLICT, current.name());
     }
     
     public OrderDto getOrderByRazorpayOrderId(String razorpayOrderId) {
@@ -176,6 +373,35 @@ public class OrderService {
         logger.info("Razorpay order ID updated successfully for order: {}", orderId);
     }
     
+    private CartSnapshotDto loadCartSnapshot(String userEmail, String snapshotId) {
+        CartSnapshotDto snapshot;
+        try {
+            snapshot = cartServiceClient.getCartSnapshot(userEmail, snapshotId).getData();
+        } catch (FeignException e) {
+            logger.warn("Unable to load cart snapshot: {} for user: {}, status: {}", snapshotId, userEmail, e.status());
+            throw new InvalidArgumentException("Cart snapshot not available: " + snapshotId);
+        }
+        
+        // cart-service checks ownership too; the order must never be built from someone else's cart
+        if (snapshot == null || !userEmail.equals(snapshot.getUserEmail())
+                || snapshot.getItems() == null || snapshot.getItems().isEmpty()) {
+            throw new InvalidArgumentException("Cart snapshot not available: " + snapshotId);
+        }
+        return snapshot;
+    }
+    
+    private void validateSnapshotOrderRequest(String userEmail, CreateOrderRequest request) {
+        validateUserEmail(userEmail);
+        
+        if (request.getItems() != null && !request.getItems().isEmpty()) {
+            throw new InvalidArgumentException("Order items must not be sent together with a cart snapshot");
+        }
+        
+        if (!StringUtils.hasText(request.getShippingAddress())) {
+            throw new InvalidArgumentException("Shipping address cannot be null or empty");
+        }
+    }
+    
     private void validateCreateOrderRequest(String userEmail, CreateOrderRequest request) {
         validateUserEmail(userEmail);
         
@@ -222,4 +448,46 @@ public class OrderService {
             throw new InvalidArgumentException("Invalid email format: " + userEmail);
         }
     }
+    
+    /**
+     * Outcome of an idempotent create: the order, and whether it was created by an earlier request.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class CreatedOrder {
+        
+        private final OrderDto order;
+        private final boolean replayed;
+    }
+    
+    /**
+     * Position of the last order on a history page. Travels as opaque base64url of
+     * {@code <createdAt epoch millis>:<id>}.
+     */
+    private static final class HistoryCursor {
+        
+        private final Date createdAt;
+        private final Long id;
+        
+        private HistoryCursor(Date createdAt, Long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+        
+        private String encode() {
+            String raw = createdAt.getTime() + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        private static HistoryCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf(':');
+                return new HistoryCursor(new Date(Long.parseLong(raw.substring(0, separator))),
+                    Long.parseLong(raw.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new InvalidArgumentException("Invalid order history cursor: " + cursor);
+            }
+        }
+    }
 }
@@ -0,0 +1,25 @@
+-- Order schema as it stood before migrations were introduced. IF NOT EXISTS lets databases
+-- that already have these tables adopt this history without changes.
+
+CREATE TABLE IF NOT EXISTS orders (
+    id                BIGINT         NOT NULL AUTO_INCREMENT,
+    created_at        DATETIME(6)    NOT NULL,
+    updated_at        DATETIME(6)    NOT NULL,
+    user_email        VARCHAR(255),
+    total_amount      DECIMAL(38, 2),
+    status            VARCHAR(32),
+    shipping_address  VARCHAR(255),
+    razorpay_order_id VARCHAR(255),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS order_items (
+    id           BIGINT         NOT NULL AUTO_INCREMENT,
+    order_id     BIGINT,
+    product_id   BIGINT,
+    product_name VARCHAR(255),
+    price        DECIMAL(38, 2),
+    quantity     INT,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_order_items_order FOREIGN KEY (order_id) REFERENCES orders (id)
+) ENGINE = InnoDB;
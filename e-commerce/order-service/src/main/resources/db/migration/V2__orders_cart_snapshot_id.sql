@@ -0,0 +1,10 @@
+-- Orders created from a cart-service checkout snapshot record its id. Schemas that Hibernate
+-- kept up to date already have the column, and MySQL has no ADD COLUMN IF NOT EXISTS.
+SET @add_cart_snapshot_id = (
+    SELECT IF(COUNT(*) = 0, 'ALTER TABLE orders ADD COLUMN cart_snapshot_id VARCHAR(64)', 'DO 0')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'orders' AND column_name = 'cart_snapshot_id'
+);
+PREPARE add_cart_snapshot_id FROM @add_cart_snapshot_id;
+EXECUTE add_cart_snapshot_id;
+DEALLOCATE PREPARE add_cart_snapshot_id;
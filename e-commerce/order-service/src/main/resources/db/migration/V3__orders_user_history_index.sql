@@ -0,0 +1,3 @@
+-- Serves a user's order history newest first, both the paged listing and the keyset
+-- history seek on (created_at, id), straight from the index without a sort.
+CREATE INDEX idx_orders_user_email_created_at_id ON orders (user_email, created_at, id);
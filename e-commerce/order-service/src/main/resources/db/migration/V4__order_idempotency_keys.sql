@@ -0,0 +1,13 @@
+-- Idempotency-Key values seen on order creation, one row per user and key. The row is written
+-- in the same transaction as the order, so a retry either finds it or loses the unique race.
+CREATE TABLE order_idempotency_keys (
+    id              BIGINT      NOT NULL AUTO_INCREMENT,
+    user_email      VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(64) NOT NULL,
+    request_hash    BINARY(32)  NOT NULL,
+    order_id        BIGINT      NOT NULL,
+    expires_at      DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_order_idempotency_keys_user_key (user_email, idempotency_key),
+    KEY idx_order_idempotency_keys_expires_at (expires_at)
+) ENGINE = InnoDB;
@@ -0,0 +1,20 @@
+-- Order lifecycle events, written in the same transaction as the change they describe. The
+-- id is the event sequence that consumers see; the relay reads it in order.
+CREATE TABLE order_outbox_events (
+    id           BIGINT         NOT NULL AUTO_INCREMENT,
+    event_type   VARCHAR(32)    NOT NULL,
+    order_id     BIGINT         NOT NULL,
+    user_email   VARCHAR(255),
+    status       VARCHAR(32),
+    total_amount DECIMAL(38, 2),
+    created_at   DATETIME(6)    NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+-- Last event delivered to each consumer. The relay locks a consumer's row while it delivers.
+CREATE TABLE order_outbox_offsets (
+    consumer      VARCHAR(64) NOT NULL,
+    last_event_id BIGINT      NOT NULL,
+    updated_at    DATETIME(6) NOT NULL,
+    PRIMARY KEY (consumer)
+) ENGINE = InnoDB;
@@ -11,14 +11,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 
 @RestController
-@RequestMapping("/api/products")
+@RequestMapping(value = "/api/products", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
 public class ProductController {
     
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
@@ -80,17 +82,46 @@ public class ProductController {
         }
     }
     
+    @GetMapping("/batch")
+    public ResponseEntity<UIBean<List<ProductDto>>> getProductsByIds(@RequestParam List<Long> ids) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching products by IDs: {}", ids);
+        }
+        
+        try {
+            List<ProductDto> products = productService.getProductsByIds(ids);
+            UIBean<List<ProductDto>> response = UIBean.success(products, "Products retrieved successfully");
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (Exception e) {
+            logger.error("Error fetching products by IDs: {}", ids, e);
+            UIBean<List<ProductDto>> errorResponse = new UIBean<>();
+            errorResponse.setSuccess(false);
+            errorResponse.setMessage("Error occurred: " + e.getMessage());
+            errorResponse.setResponse("ERROR");
+            return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
     @GetMapping("/category/{category}")
-    public ResponseEntity<UIBeanPaginated<List<ProductDto>>> getProductsByCategory(
+    public ResponseEntity<?> getProductsByCategory(
             @PathVariable String category,
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer pageSize) {
+            @RequestParam(required = false) Integer pageSize,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         
         if (logger.isDebugEnabled()) {
             logger.debug("Fetching products by category: {}, page: {}, pageSize: {}", category, page, pageSize);
         }
         
         try {
+            // Materialized first pages are served as pre-rendered JSON, skipping DB and serializer
+            if (acceptsJson(accept)) {
+                byte[] cachedBody = productService.getSerializedCategoryPage(category, page, pageSize);
+                if (cachedBody != null) {
+                    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(cachedBody);
+                }
+            }
+            
             Page<ProductDto> productPage = productService.getProductsByCategory(category, page, pageSize);
             
             UIBeanPaginated<List<ProductDto>> response = UIBeanPaginated.success(
@@ -227,4 +258,17 @@ public class ProductController {
             return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+    
+    private boolean acceptsJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        if (mediaTypes.stream().anyMatch(MediaType.APPLICATION_CBOR::includes)) {
+            return false;
+        }
+        
+        return mediaTypes.stream().anyMatch(mediaType -> mediaType.includes(MediaType.APPLICATION_JSON));
+    }
 }
@@ -0,0 +1,331 @@
+package com.example.ecommerce.product.service;
+
+import com.example.ecommerce.common.constants.PaginationConstants;
+import com.example.ecommerce.common.dto.UIBeanPaginated;
+import com.example.ecommerce.product.dto.ProductDto;
+import com.example.ecommerce.product.mapper.ProductMapper;
+import com.example.ecommerce.product.model.Product;
+import com.example.ecommerce.product.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps the first few pages of every category materialized in memory.
+ *
+ * Each category holds a window of its newest products (same {@code id DESC} order as the
+ * listing endpoint) plus the category total, so page requests that fall inside the window
+ * skip both the SELECT and the COUNT. JSON renderings of each (page, pageSize) are memoized
+ * on the window, so repeated hits also skip the serializer.
+ *
+ * Windows are patched in place by {@link ProductService} after each committed create,
+ * update, delete or stock change. A generation counter (striped by category) stops a load that
+ * raced with a write from installing stale data, and a TTL bounds drift caused by writes made
+ * on other product-service instances.
+ *
+ * At most {@code max-categories} windows are kept, least recently used first out, and only
+ * for categories that have products, so requests for arbitrary category names cannot fill
+ * the cache. Concurrent misses on one category share a single load.
+ */
+@Component
+public class CategoryPageCache {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CategoryPageCache.class);
+    
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    
+    private static final int GENERATION_STRIPES = 1024;
+    
+    // Access-ordered for LRU eviction; guarded by its own monitor
+    private final LinkedHashMap<String, CategoryWindow> windows = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, CompletableFuture<CategoryWindow>> loads = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    
+    @Value("${product.category-cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${product.category-cache.pages:3}")
+    private int cachedPages;
+    
+    @Value("${product.category-cache.max-categories:500}")
+    private int maxCategories;
+    
+    @Value("${product.category-cache.ttl-ms:300000}")
+    private long ttlMillis;
+    
+    @Autowired
+    public CategoryPageCache(ProductRepository productRepository, ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Returns the requested page from the in-memory window, or {@code null} when the page
+     * is outside the cached range and has to be read from the database.
+     */
+    public Page<ProductDto> getPage(String category, int pageNumber, int pageSize) {
+        CategoryWindow window = windowFor(category, pageNumber);
+        if (window == null || !window.covers(pageNumber, pageSize)) {
+            return null;
+        }
+        
+        return new PageImpl<>(window.slice(pageNumber, pageSize), pageRequest(pageNumber, pageSize), window.total);
+    }
+    
+    /**
+     * Returns the fully rendered JSON envelope for the requested page, or {@code null} on a miss.
+     */
+    public byte[] getSerializedPage(String category, int pageNumber, int pageSize) {
+        CategoryWindow window = windowFor(category, pageNumber);
+        if (window == null || !window.covers(pageNumber, pageSize)) {
+            return null;
+        }
+        
+        return window.serialized.computeIfAbsent(pageKey(pageNumber, pageSize), key -> {
+            Page<ProductDto> page = new PageImpl<>(window.slice(pageNumber, pageSize),
+                pageRequest(pageNumber, pageSize), window.total);
+            UIBeanPaginated<List<ProductDto>> body = UIBeanPaginated.success(
+                page.getContent(),
+                page.getTotalElements(),
+                page.getTotalPages(),
+                page.getNumber(),
+                page.getSize()
+            );
+            try {
+                return objectMapper.writeValueAsBytes(body);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Unable to serialize category page for: " + category, e);
+            }
+        });
+    }
+    
+    public void onProductSaved(ProductDto product, String previousCategory) {
+        if (!enabled || product == null) {
+            return;
+        }
+        
+        String category = product.getCategory();
+        boolean movedCategory = previousCategory != null && !previousCategory.equals(category);
+        
+        if (movedCategory) {
+            apply(previousCategory, window -> window.without(product.getId()));
+        }
+        
+        boolean newToCategory = previousCategory == null || movedCategory;
+        apply(category, window -> window.with(product, newToCategory));
+    }
+    
+    public void onProductDeleted(Long productId, String category) {
+        if (!enabled) {
+            return;
+        }
+        
+        apply(category, window -> window.without(productId));
+    }
+    
+    private CategoryWindow windowFor(String category, int pageNumber) {
+        if (!enabled || category == null || pageNumber < 0 || pageNumber >= cachedPages) {
+            return null;
+        }
+        
+        CategoryWindow window;
+        synchronized (windows) {
+            window = windows.get(category);
+        }
+        if (window != null && !window.isExpired(ttlMillis)) {
+            return window;
+        }
+        
+        CompletableFuture<CategoryWindow> mine = new CompletableFuture<>();
+        CompletableFuture<CategoryWindow> running = loads.putIfAbsent(category, mine);
+        if (running != null) {
+            // Another request is already loading this category; a failed load falls back to the database
+            return running.exceptionally(e -> null).join();
+        }
+        
+        try {
+            CategoryWindow loaded = load(category);
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(category, mine);
+        }
+    }
+    
+    private CategoryWindow load(String category) {
+        long generation = generations.get(stripe(category));
+        int capacity = cachedPages * PaginationConstants.MAX_PAGE_SIZE;
+        
+        Page<Product> productPage = productRepository.findByCategory(category,
+            PageRequest.of(0, capacity, Sort.by("id").descending()));
+        
+        List<ProductDto> items = new ArrayList<>(productPage.getNumberOfElements());
+        productPage.getContent().forEach(product -> items.add(ProductMapper.toDto(product)));
+        CategoryWindow loaded = new CategoryWindow(items, productPage.getTotalElements(), capacity);
+        
+        if (loaded.total == 0) {
+            // Served once but not kept: unknown categories must not take cache slots
+            return loaded;
+        }
+        
+        synchronized (windows) {
+            // A write that committed while we were reading bumps the generation; drop the stale result
+            if (generations.get(stripe(category)) != generation) {
+                return null;
+            }
+            windows.put(category, loaded);
+            if (windows.size() > maxCategories) {
+                Iterator<String> eldest = windows.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Materialized category window: {}, products: {}, total: {}",
+                category, items.size(), loaded.total);
+        }
+        return loaded;
+    }
+    
+    private void apply(String category, UnaryOperator<CategoryWindow> change) {
+        if (category == null) {
+            return;
+        }
+        
+        synchronized (windows) {
+            generations.incrementAndGet(stripe(category));
+            CategoryWindow existing = windows.get(category);
+            if (existing == null) {
+                return;
+            }
+            CategoryWindow changed = change.apply(existing);
+            if (changed.total == 0) {
+                windows.remove(category);
+            } else {
+                windows.put(category, changed);
+            }
+        }
+    }
+    
+    private static int stripe(String category) {
+        return (category.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+    
+    private static PageRequest pageRequest(int pageNumber, int pageSize) {
+        return PageRequest.of(pageNumber, pageSize, Sort.by("id").descending());
+    }
+    
+    private static long pageKey(int pageNumber, int pageSize) {
+        return ((long) pageNumber << 32) | pageSize;
+    }
+    
+    /**
+     * Immutable snapshot of the newest products in one category. Every change produces a new
+     * window, which also discards the memoized renderings of the previous one.
+     */
+    private static final class CategoryWindow {
+        
+        private final List<ProductDto> items;
+        private final long total;
+        private final int capacity;
+        private final long loadedAt;
+        private final Map<Long, byte[]> serialized = new ConcurrentHashMap<>();
+        
+        private CategoryWindow(List<ProductDto> items, long total, int capacity) {
+            this(items, total, capacity, System.currentTimeMillis());
+        }
+        
+        private CategoryWindow(List<ProductDto> items, long total, int capacity, long loadedAt) {
+            this.items = Collections.unmodifiableList(items);
+            this.total = total;
+            this.capacity = capacity;
+            this.loadedAt = loadedAt;
+        }
+        
+        private boolean isExpired(long ttlMillis) {
+            return ttlMillis > 0 && System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+        
+        private boolean isComplete() {
+            return items.size() >= total;
+        }
+        
+        private boolean covers(int pageNumber, int pageSize) {
+            long end = Math.min((long) pageNumber * pageSize + pageSize, total);
+            return isComplete() || end <= items.size();
+        }
+        
+        private List<ProductDto> slice(int pageNumber, int pageSize) {
+            int from = (int) Math.min((long) pageNumber * pageSize, items.size());
+            int to = (int) Math.min((long) from + pageSize, items.size());
+            return items.subList(from, to);
+        }
+        
+        private CategoryWindow with(ProductDto product, boolean newToCategory) {
+            List<ProductDto> updated = new ArrayList<>(items);
+            long updatedTotal = newToCategory ? total + 1 : total;
+            int index = indexOf(product.getId());
+            
+            if (index >= 0) {
+                updated.set(index, product);
+            } else if (!newToCategory && !isComplete()) {
+                // Changed product lives beyond the window; nothing visible to patch
+                return this;
+            } else if (isComplete() || (!items.isEmpty() && product.getId() > items.get(items.size() - 1).getId())) {
+                int position = 0;
+                while (position < updated.size() && updated.get(position).getId() > product.getId()) {
+                    position++;
+                }
+                updated.add(position, product);
+                if (updated.size() > capacity) {
+                    updated.remove(updated.size() - 1);
+                }
+            }
+            
+            return new CategoryWindow(updated, updatedTotal, capacity, loadedAt);
+        }
+        
+        private CategoryWindow without(Long productId) {
+            List<ProductDto> updated = new ArrayList<>(items);
+            int index = indexOf(productId);
+            if (index >= 0) {
+                updated.remove(index);
+            }
+            
+            return new CategoryWindow(updated, Math.max(0, total - 1), capacity, loadedAt);
+        }
+        
+        private int indexOf(Long productId) {
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i).getId().equals(productId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -18,20 +18,28 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
     
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
     
+    private static final int MAX_BATCH_IDS = 100;
+    
     private final ProductRepository productRepository;
+    private final CategoryPageCache categoryPageCache;
     
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, CategoryPageCache categoryPageCache) {
         this.productRepository = productRepository;
+        this.categoryPageCache = categoryPageCache;
     }
     
     public Page<ProductDto> getAllProducts(Integer page, Integer pageSize) {
@@ -65,6 +73,28 @@ public class ProductService {
         return ProductMapper.toDto(product);
     }
     
+    /**
+     * Looks up several products in one query. Unknown ids are simply absent from the result,
+     * so callers can tell which products no longer exist.
+     */
+    public List<ProductDto> getProductsByIds(List<Long> ids) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching products by IDs: {}", ids);
+        }
+        
+        if (ids == null || ids.isEmpty()) {
+            throw new InvalidArgumentException("Product IDs cannot be null or empty");
+        }
+        
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new InvalidArgumentException("Cannot fetch more than " + MAX_BATCH_IDS + " products at once");
+        }
+        
+        return productRepository.findAllById(ids).stream()
+            .map(ProductMapper::toDto)
+            .collect(Collectors.toList());
+    }
+    
     public Page<ProductDto> getProductsByCategory(String category, Integer page, Integer pageSize) {
         if (logger.isDebugEnabled()) {
             logger.debug("Fetching products by category: {}, page: {}, pageSize: {}", category, page, pageSize);
@@ -78,6 +108,11 @@ public class ProductService {
             : PaginationConstants.DEFAULT_PAGE_SIZE;
         int pageNumber = page != null ? page : PaginationConstants.DEFAULT_PAGE;
         
+        Page<ProductDto> cachedPage = categoryPageCache.getPage(category, pageNumber, size);
+        if (cachedPage != null) {
+            return cachedPage;
+        }
+        
         Sort sort = Sort.by("id").descending();
         Pageable pageable = PageRequest.of(pageNumber, size, sort);
         
@@ -85,6 +120,22 @@ public class ProductService {
         return productPage.map(ProductMapper::toDto);
     }
     
+    /**
+     * Returns the pre-rendered JSON response for a category page when it is materialized in
+     * memory, or {@code null} when the caller has to fall back to {@link #getProductsByCategory}.
+     */
+    public byte[] getSerializedCategoryPage(String category, Integer page, Integer pageSize) {
+        if (!StringUtils.hasText(category)) {
+            throw new InvalidArgumentException("Category cannot be null or empty");
+        }
+        
+        int size = pageSize != null ? Math.min(pageSize, PaginationConstants.MAX_PAGE_SIZE) 
+            : PaginationConstants.DEFAULT_PAGE_SIZE;
+        int pageNumber = page != null ? page : PaginationConstants.DEFAULT_PAGE;
+        
+        return categoryPageCache.getSerializedPage(category, pageNumber, size);
+    }
+    
     public Page<ProductDto> searchProducts(String name, Integer page, Integer pageSize) {
         if (logger.isDebugEnabled()) {
             logger.debug("Searching products by name: {}, page: {}, pageSize: {}", name, page, pageSize);
@@ -118,7 +169,9 @@ public class ProductService {
         
         logger.info("Product created successfully with ID: {}", savedProduct.getId());
         
-        return ProductMapper.toDto(savedProduct);
+        ProductDto productDto = ProductMapper.toDto(savedProduct);
+        afterCommit(() -> categoryPageCache.onProductSaved(productDto, null));
+        return productDto;
     }
     
     @Transactional
@@ -136,12 +189,15 @@ public class ProductService {
         Product product = productRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + id));
         
+        String previousCategory = product.getCategory();
         ProductMapper.updateEntity(product, request);
         Product updatedProduct = productRepository.save(product);
         
         logger.info("Product updated successfully with ID: {}", id);
         
-        return ProductMapper.toDto(updatedProduct);
+        ProductDto productDto = ProductMapper.toDto(updatedProduct);
+        afterCommit(() -> categoryPageCache.onProductSaved(productDto, previousCategory));
+        return productDto;
     }
     
     @Transactional
@@ -154,12 +210,14 @@ public class ProductService {
             throw new InvalidArgumentException("Invalid product ID: " + id);
         }
         
-        if (!productRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Product not found with ID: " + id);
-        }
+        Product product = productRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + id));
         
-        productRepository.deleteById(id);
+        productRepository.delete(product);
         logger.info("Product deleted successfully with ID: {}", id);
+        
+        String category = product.getCategory();
+        afterCommit(() -> categoryPageCache.onProductDeleted(id, category));
     }
     
     @Transactional
@@ -189,7 +247,23 @@ public class ProductService {
         
         logger.info("Stock updated successfully for product ID: {}, new stock: {}", id, newStock);
         
-        return ProductMapper.toDto(updatedProduct);
+        ProductDto productDto = ProductMapper.toDto(updatedProduct);
+        afterCommit(() -> categoryPageCache.onProductSaved(productDto, productDto.getCategory()));
+        return productDto;
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
     
     // Validation methods
@@ -0,0 +1,125 @@
+package com.example.ecommerce.product.config;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.ecommerce.common.constants.PaginationConstants;
+import com.example.ecommerce.common.dto.UIBeanPaginated;
+import com.example.ecommerce.product.dto.ProductDto;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Encode and decode cost of a product listing page as JSON and as CBOR, at a single product, the
+ * default page size and the maximum page size. The mappers are built the way
+ * {@link ContentNegotiationConfig} builds them, with the date setting Boot applies by default.
+ *
+ * Not picked up by surefire; {@link #main} prints the payload sizes, then runs the benchmark:
+ * {@code mvn -pl product-service test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.ecommerce.product.config.ProductPageCodecBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductPageCodecBenchmark {
+    
+    private static final TypeReference<UIBeanPaginated<List<ProductDto>>> PAGE_TYPE = new TypeReference<>() {
+    };
+    
+    @Param({"1", "" + PaginationConstants.DEFAULT_PAGE_SIZE, "" + PaginationConstants.MAX_PAGE_SIZE})
+    private int pageSize;
+    
+    private ObjectMapper jsonMapper;
+    private ObjectMapper cborMapper;
+    private UIBeanPaginated<List<ProductDto>> page;
+    private byte[] jsonBytes;
+    private byte[] cborBytes;
+    
+    @Setup
+    public void setUp() throws Exception {
+        jsonMapper = mapperBuilder().build();
+        cborMapper = mapperBuilder().factory(new CBORFactory()).build();
+        page = productPage(pageSize);
+        jsonBytes = jsonMapper.writeValueAsBytes(page);
+        cborBytes = cborMapper.writeValueAsBytes(page);
+    }
+    
+    @Benchmark
+    public byte[] encodeJson() throws Exception {
+        return jsonMapper.writeValueAsBytes(page);
+    }
+    
+    @Benchmark
+    public byte[] encodeCbor() throws Exception {
+        return cborMapper.writeValueAsBytes(page);
+    }
+    
+    @Benchmark
+    public UIBeanPaginated<List<ProductDto>> decodeJson() throws Exception {
+        return jsonMapper.readValue(jsonBytes, PAGE_TYPE);
+    }
+    
+    @Benchmark
+    public UIBeanPaginated<List<ProductDto>> decodeCbor() throws Exception {
+        return cborMapper.readValue(cborBytes, PAGE_TYPE);
+    }
+    
+    private static Jackson2ObjectMapperBuilder mapperBuilder() {
+        return new Jackson2ObjectMapperBuilder().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+    
+    private static UIBeanPaginated<List<ProductDto>> productPage(int size) {
+        List<ProductDto> products = new ArrayList<>(size);
+        Date created = new Date(1_700_000_000_000L);
+        for (long i = 1; i <= size; i++) {
+            products.add(new ProductDto(i, "Wireless Ergonomic Mouse " + i,
+                    "Rechargeable 2.4 GHz wireless mouse with silent buttons, adjustable DPI and a "
+                            + "contoured grip for all-day use. Works with Windows, macOS and Linux.",
+                    new BigDecimal("24.99").add(BigDecimal.valueOf(i)), "Electronics",
+                    "https://cdn.example.com/images/products/" + i + "/main.jpg", 100 + (int) i,
+                    created, new Date(created.getTime() + i * 60_000L)));
+        }
+        return UIBeanPaginated.success(products, 1_250L, (1_250 + size - 1) / size, 0, size);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        ObjectMapper json = mapperBuilder().build();
+        ObjectMapper cbor = mapperBuilder().factory(new CBORFactory()).build();
+        for (int size : new int[] {1, PaginationConstants.DEFAULT_PAGE_SIZE, PaginationConstants.MAX_PAGE_SIZE}) {
+            UIBeanPaginated<List<ProductDto>> page = productPage(size);
+            System.out.printf("pageSize=%d json=%d bytes cbor=%d bytes%n", size,
+                    json.writeValueAsBytes(page).length, cbor.writeValueAsBytes(page).length);
+        }
+        runBenchmarks();
+    }
+    
+    private static void runBenchmarks() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductPageCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}